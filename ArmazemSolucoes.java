@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+// Armazém compacto de soluções: cada coluna ocupa ceil(log2 n) bits e as soluções ficam
+// empacotadas uma após a outra em um único long[], sem cabeçalho de objeto por solução.
+// Recebe soluções em fluxo (aceitar) e devolve qualquer uma por índice (obter).
+public class ArmazemSolucoes implements ReceptorSolucao, FonteSolucoes, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int n;
+    private final int bitsPorColuna;
+    private final long mascaraColuna;
+    private long[] palavras;
+    private long quantidade;
+
+    public ArmazemSolucoes(int n) {
+        this.n = n;
+        this.bitsPorColuna = bitsPorColuna(n);
+        this.mascaraColuna = (1L << bitsPorColuna) - 1;
+        this.palavras = new long[16];
+    }
+
+    // Menor número de bits que representa as colunas 0..n-1 (pelo menos 1)
+    public static int bitsPorColuna(int n) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    @Override
+    public long tamanho() {
+        return quantidade;
+    }
+
+    public int getBitsPorColuna() {
+        return bitsPorColuna;
+    }
+
+    // Acrescenta uma solução ao final do armazém
+    @Override
+    public void aceitar(int[] rainhas) {
+        long bit = quantidade * n * bitsPorColuna;
+        garantirCapacidade(bit + (long) n * bitsPorColuna);
+        for (int linha = 0; linha < n; linha++, bit += bitsPorColuna) {
+            escrever(bit, rainhas[linha]);
+        }
+        quantidade++;
+    }
+
+    @Override
+    public void obter(long indice, int[] destino) {
+        if (indice < 0 || indice >= quantidade) {
+            throw new IndexOutOfBoundsException("Índice " + indice + " fora de 0.." + (quantidade - 1));
+        }
+        long bit = indice * n * bitsPorColuna;
+        for (int linha = 0; linha < n; linha++, bit += bitsPorColuna) {
+            destino[linha] = ler(bit);
+        }
+    }
+
+    // Acrescenta todas as soluções de outro armazém com o mesmo n
+    public void anexar(ArmazemSolucoes outro) {
+        if (outro.n != n) {
+            throw new IllegalArgumentException("Armazéns de tamanhos diferentes: " + n + " e " + outro.n);
+        }
+        int[] rainhas = new int[n];
+        for (long i = 0; i < outro.quantidade; i++) {
+            outro.obter(i, rainhas);
+            aceitar(rainhas);
+        }
+    }
+
+    // Bytes efetivamente ocupados pelas soluções empacotadas
+    public long bytesUsados() {
+        return (quantidade * n * bitsPorColuna + 7) / 8;
+    }
+
+    // Serializa só as palavras usadas, sem a folga de capacidade
+    private void writeObject(ObjectOutputStream saida) throws IOException {
+        palavras = Arrays.copyOf(palavras, (int) ((quantidade * n * bitsPorColuna + 63) >>> 6));
+        saida.defaultWriteObject();
+    }
+
+    private void escrever(long bit, int valor) {
+        int palavra = (int) (bit >>> 6);
+        int deslocamento = (int) (bit & 63);
+        palavras[palavra] |= ((long) valor & mascaraColuna) << deslocamento;
+        if (deslocamento + bitsPorColuna > 64) {
+            palavras[palavra + 1] |= ((long) valor & mascaraColuna) >>> (64 - deslocamento);
+        }
+    }
+
+    private int ler(long bit) {
+        int palavra = (int) (bit >>> 6);
+        int deslocamento = (int) (bit & 63);
+        long valor = palavras[palavra] >>> deslocamento;
+        if (deslocamento + bitsPorColuna > 64) {
+            valor |= palavras[palavra + 1] << (64 - deslocamento);
+        }
+        return (int) (valor & mascaraColuna);
+    }
+
+    private void garantirCapacidade(long bits) {
+        long necessarias = (bits + 63) >>> 6;
+        if (necessarias > palavras.length) {
+            long nova = Math.max(necessarias, (long) palavras.length * 2);
+            if (nova > Integer.MAX_VALUE - 8) {
+                nova = Math.max(necessarias, Integer.MAX_VALUE - 8);
+            }
+            palavras = Arrays.copyOf(palavras, (int) nova);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Arquivo binário de soluções, escrito em fluxo durante a busca e lido por mapeamento em memória.
+// Formato: cabeçalho de 32 bytes (mágico, versão, n, codificação, bits por coluna,
+// bytes por solução, quantidade) seguido de um registro de tamanho fixo por solução.
+// Na codificação empacotada (CodificacaoSolucoes) o registro tem tamanho fixo, então a
+// solução i começa sempre em CABECALHO + i * bytesPorSolucao.
+public class ArquivoSolucoes implements FonteSolucoes, Closeable {
+    public static final int MAGICO = 0x4E514E53; // "NQNS"
+    public static final int VERSAO = 1;
+    public static final int CODIFICACAO_EMPACOTADA = 1;
+    public static final int CABECALHO = 32;
+    private static final long QUANTIDADE_DESCONHECIDA = -1; // Arquivo não fechado: a quantidade vem do tamanho
+    private static final int TAMANHO_JANELA = 64 << 20; // Bytes mapeados de cada vez
+
+    private final FileChannel canal;
+    private final int n;
+    private final int bytesPorSolucao;
+    private final long quantidade;
+    private final long solucoesPorJanela;
+    private final byte[] registro;
+    private MappedByteBuffer janela;
+    private long janelaAtual = -1;
+
+    private ArquivoSolucoes(FileChannel canal) throws IOException {
+        this.canal = canal;
+        ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+        while (cabecalho.hasRemaining() && canal.read(cabecalho, cabecalho.position()) >= 0) {
+            // Lê até completar o cabeçalho
+        }
+        cabecalho.flip();
+        if (cabecalho.remaining() < CABECALHO || cabecalho.getInt() != MAGICO) {
+            throw new IOException("Não é um arquivo de soluções N Rainhas");
+        }
+        int versao = cabecalho.getInt();
+        this.n = cabecalho.getInt();
+        if (n < 0 || n > Integer.MAX_VALUE / Integer.SIZE) {
+            throw new IOException("Cabeçalho com n = " + n + " inválido");
+        }
+        int codificacao = cabecalho.getInt();
+        int bitsPorColuna = cabecalho.getInt();
+        if (versao != VERSAO || codificacao != CODIFICACAO_EMPACOTADA || bitsPorColuna != ArmazemSolucoes.bitsPorColuna(n)) {
+            throw new IOException("Versão " + versao + " ou codificação " + codificacao + " não suportada");
+        }
+        this.bytesPorSolucao = cabecalho.getInt();
+        if (bytesPorSolucao != CodificacaoSolucoes.bytesPorSolucao(n)) {
+            throw new IOException("Cabeçalho com registro de " + bytesPorSolucao + " bytes; para " + n
+                    + " rainhas são " + CodificacaoSolucoes.bytesPorSolucao(n));
+        }
+        long gravada = cabecalho.getLong();
+        long tamanho = canal.size();
+        if (gravada == QUANTIDADE_DESCONHECIDA) {
+            // Arquivo ainda sendo escrito (ou de um escritor que caiu): vale o que já está completo
+            this.quantidade = bytesPorSolucao == 0 ? 0 : (tamanho - CABECALHO) / bytesPorSolucao;
+        } else if (gravada < 0 || gravada > (Long.MAX_VALUE - CABECALHO) / Math.max(1, bytesPorSolucao)
+                || tamanho != CABECALHO + gravada * bytesPorSolucao) {
+            throw new IOException("Arquivo de " + tamanho + " bytes não corresponde ao cabeçalho ("
+                    + gravada + " soluções de " + bytesPorSolucao + " bytes)");
+        } else {
+            this.quantidade = gravada;
+        }
+        this.solucoesPorJanela = Math.max(1, TAMANHO_JANELA / Math.max(1, bytesPorSolucao));
+        this.registro = new byte[bytesPorSolucao];
+    }
+
+    // Cria um arquivo novo para receber as soluções de n rainhas
+    public static Escritor criar(Path caminho, int n) throws IOException {
+        return new Escritor(caminho, n);
+    }
+
+    // Abre um arquivo existente para leitura paginada
+    public static ArquivoSolucoes abrir(Path caminho) throws IOException {
+        FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ);
+        try {
+            return new ArquivoSolucoes(canal);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    @Override
+    public long tamanho() {
+        return quantidade;
+    }
+
+    // Mapeia sob demanda a janela que contém a solução; o heap usado não depende do tamanho do arquivo
+    @Override
+    public synchronized void obter(long indice, int[] destino) {
+        if (indice < 0 || indice >= quantidade) {
+            throw new IndexOutOfBoundsException("Índice " + indice + " fora de 0.." + (quantidade - 1));
+        }
+        long numeroJanela = indice / solucoesPorJanela;
+        if (numeroJanela != janelaAtual) {
+            long primeira = numeroJanela * solucoesPorJanela;
+            long solucoes = Math.min(solucoesPorJanela, quantidade - primeira);
+            try {
+                janela = canal.map(FileChannel.MapMode.READ_ONLY, CABECALHO + primeira * bytesPorSolucao, solucoes * bytesPorSolucao);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            janelaAtual = numeroJanela;
+        }
+        janela.get((int) ((indice % solucoesPorJanela) * bytesPorSolucao), registro);
+        CodificacaoSolucoes.desempacotar(registro, 0, n, destino);
+    }
+
+    @Override
+    public void close() throws IOException {
+        janela = null;
+        canal.close();
+    }
+
+    // Grava as soluções em fluxo, na ordem em que chegam. O cabeçalho é reescrito com a
+    // quantidade final no close(); se o processo morrer antes, a quantidade sai do tamanho.
+    public static class Escritor implements ReceptorSolucao, Closeable {
+        private static final int TAMANHO_BUFFER = 1 << 20;
+
+        private final FileChannel canal;
+        private final int n;
+        private final byte[] registro;
+        private final ByteBuffer buffer;
+        private long quantidade;
+
+        private Escritor(Path caminho, int n) throws IOException {
+            this.canal = FileChannel.open(caminho, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.n = n;
+            this.registro = new byte[CodificacaoSolucoes.bytesPorSolucao(n)];
+            this.buffer = ByteBuffer.allocate(Math.max(TAMANHO_BUFFER, registro.length));
+            escreverCabecalho(QUANTIDADE_DESCONHECIDA);
+            canal.position(CABECALHO);
+        }
+
+        public long getQuantidade() {
+            return quantidade;
+        }
+
+        @Override
+        public void aceitar(int[] rainhas) {
+            CodificacaoSolucoes.empacotar(rainhas, n, registro, 0);
+            escrever(registro, 0, registro.length);
+            quantidade++;
+        }
+
+        // Acrescenta registros já empacotados, como os recebidos pelo protocolo binário
+        public void aceitarRegistros(byte[] registros, int inicio, int tamanho) {
+            if (registro.length == 0 || tamanho % registro.length != 0) {
+                throw new IllegalArgumentException("Tamanho " + tamanho + " não é múltiplo do registro de " + registro.length + " bytes");
+            }
+            escrever(registros, inicio, tamanho);
+            quantidade += tamanho / registro.length;
+        }
+
+        // Descarta as soluções a partir da de número 'primeira', como as de uma tentativa que não terminou
+        public void descartarDesde(long primeira) throws IOException {
+            if (primeira < 0 || primeira > quantidade) {
+                throw new IllegalArgumentException("Posição " + primeira + " fora de 0.." + quantidade);
+            }
+            esvaziarBuffer();
+            long fim = CABECALHO + primeira * registro.length;
+            canal.truncate(fim);
+            canal.position(fim);
+            quantidade = primeira;
+        }
+
+        private void escrever(byte[] registros, int inicio, int tamanho) {
+            try {
+                while (tamanho > 0) {
+                    if (!buffer.hasRemaining()) {
+                        esvaziarBuffer();
+                    }
+                    int parte = Math.min(tamanho, buffer.remaining());
+                    buffer.put(registros, inicio, parte);
+                    inicio += parte;
+                    tamanho -= parte;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                esvaziarBuffer();
+                escreverCabecalho(quantidade);
+            } finally {
+                canal.close();
+            }
+        }
+
+        private void esvaziarBuffer() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void escreverCabecalho(long quantidadeGravada) throws IOException {
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+            cabecalho.putInt(MAGICO).putInt(VERSAO).putInt(n).putInt(CODIFICACAO_EMPACOTADA)
+                    .putInt(ArmazemSolucoes.bitsPorColuna(n)).putInt(registro.length).putLong(quantidadeGravada);
+            cabecalho.flip();
+            long posicao = 0;
+            while (cabecalho.hasRemaining()) {
+                posicao += canal.write(cabecalho, posicao);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.*;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compara o formato antigo (ObjectOutputStream de List<int[]> enviado no fim) com o protocolo
+// binário em lotes: bytes por solução e tempo de ponta a ponta por loopback, incluindo a busca.
+// Uso: java BenchmarkProtocolo [n]
+public class BenchmarkProtocolo {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+
+        // Aquecimento dos dois caminhos antes de medir
+        for (int i = 0; i < 3; i++) {
+            medirSerializacao(n);
+            medirLotes(n);
+        }
+
+        long[] serializacao = medirSerializacao(n);
+        long[] lotes = medirLotes(n);
+        System.out.printf("%-22s %12s %12s %16s%n", "Formato", "Soluções", "Bytes/sol.", "Ponta a ponta (ms)");
+        imprimir("ObjectOutputStream", serializacao);
+        imprimir("Lotes binários", lotes);
+    }
+
+    private static void imprimir(String formato, long[] medida) {
+        System.out.printf("%-22s %12d %12.2f %16.2f%n", formato, medida[0], (double) medida[1] / medida[0], medida[2] / 1e6);
+    }
+
+    // Formato antigo: calcula tudo, depois envia a lista inteira e o servidor a desserializa
+    private static long[] medirSerializacao(int n) throws Exception {
+        try (ServerSocket servidor = new ServerSocket(0)) {
+            long[] recebidos = new long[2];
+            Thread leitor = new Thread(() -> {
+                try (Socket socket = servidor.accept()) {
+                    ContadorEntrada contador = new ContadorEntrada(socket.getInputStream());
+                    ObjectInputStream entrada = new ObjectInputStream(new BufferedInputStream(contador));
+                    recebidos[0] = ((List<?>) entrada.readObject()).size();
+                    recebidos[1] = contador.bytes;
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            leitor.start();
+
+            long inicio = System.nanoTime();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), servidor.getLocalPort())) {
+                List<int[]> solucoes = new ArrayList<>();
+                new MotorBitmask(n).enumerar(new int[n], 0, solucao -> solucoes.add(solucao.clone()));
+                ObjectOutputStream saida = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                saida.writeObject(solucoes);
+                saida.flush();
+                leitor.join();
+            }
+            return new long[] {recebidos[0], recebidos[1], System.nanoTime() - inicio};
+        }
+    }
+
+    // Protocolo novo: os lotes saem durante a busca e o servidor decodifica cada um ao chegar
+    private static long[] medirLotes(int n) throws Exception {
+        try (ServerSocket servidor = new ServerSocket(0)) {
+            long[] recebidos = new long[2];
+            Thread leitor = new Thread(() -> {
+                try (Socket socket = servidor.accept()) {
+                    ContadorEntrada contador = new ContadorEntrada(socket.getInputStream());
+                    DataInputStream entrada = new DataInputStream(new BufferedInputStream(contador));
+                    int bytesPorSolucao = CodificacaoSolucoes.bytesPorSolucao(n);
+                    int[] rainhas = new int[n];
+                    while (true) {
+                        ProtocoloDistribuido.Quadro quadro = ProtocoloDistribuido.ler(entrada);
+                        if (quadro.tipo == ProtocoloDistribuido.RESULTADO) {
+                            break;
+                        }
+                        quadro.carga.getInt();
+                        for (int i = quadro.carga.position(); i < quadro.carga.limit(); i += bytesPorSolucao) {
+                            CodificacaoSolucoes.desempacotar(quadro.carga.array(), i, n, rainhas);
+                            recebidos[0]++;
+                        }
+                    }
+                    recebidos[1] = contador.bytes;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            leitor.start();
+
+            long inicio = System.nanoTime();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), servidor.getLocalPort())) {
+                DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                ProtocoloDistribuido.EmissorLotes emissor = new ProtocoloDistribuido.EmissorLotes(saida, n, 0);
+                new MotorBitmask(n).enumerar(new int[n], 0, emissor);
+                emissor.terminar();
+                leitor.join();
+            }
+            return new long[] {recebidos[0], recebidos[1], System.nanoTime() - inicio};
+        }
+    }
+
+    // Conta os bytes que chegaram pelo socket
+    private static class ContadorEntrada extends FilterInputStream {
+        long bytes;
+
+        ContadorEntrada(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int lido = super.read();
+            if (lido >= 0) {
+                bytes++;
+            }
+            return lido;
+        }
+
+        @Override
+        public int read(byte[] destino, int inicio, int tamanho) throws IOException {
+            int lidos = super.read(destino, inicio, tamanho);
+            if (lidos > 0) {
+                bytes += lidos;
+            }
+            return lidos;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.*;
+import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mede quantas conexões simultâneas o coordenador sustenta e a que taxa ele recebe lotes.
+// O servidor roda neste processo numa porta livre; cada conexão é um worker sintético que
+// reenvia os registros já calculados de cada tarefa, então o tempo medido é o da recepção
+// e gravação no coordenador, e não o da busca.
+// Uso: java BenchmarkServidor [n] [conexões máximas]
+public class BenchmarkServidor {
+    private static final Map<String, List<byte[]>> lotesPorPrefixo = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int maxConexoes = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        // Cache próprio e descartável, esvaziado a cada rodada para que a busca seja refeita
+        Path diretorio = Files.createTempDirectory("nqueens-benchmark-");
+        ServidorDistribuidoNQueens.configurarCache(diretorio, Long.MAX_VALUE);
+        ServerSocket servidor = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread atendimento = new Thread(() -> {
+            try {
+                ServidorDistribuidoNQueens.atender(servidor);
+            } catch (IOException e) {
+                // Socket fechado no fim do benchmark
+            }
+        });
+        atendimento.setDaemon(true);
+        atendimento.start();
+
+        // Aquecimento: também calcula os registros de todas as tarefas
+        rodada(servidor.getLocalPort(), n, 1);
+        rodada(servidor.getLocalPort(), n, 1);
+
+        System.out.printf("%10s %10s %12s %12s %14s %10s%n", "Conexões", "Pico", "Tempo (ms)", "Soluções", "Soluções/s", "MiB/s");
+        for (int conexoes = 1; conexoes <= maxConexoes; conexoes = conexoes < maxConexoes && conexoes * 4 > maxConexoes ? maxConexoes : conexoes * 4) {
+            long[] medida = rodada(servidor.getLocalPort(), n, conexoes);
+            double segundos = medida[2] / 1e9;
+            System.out.printf("%10d %10d %12.1f %12d %14.0f %10.1f%n", conexoes, ServidorDistribuidoNQueens.getPicoConexoes(),
+                    medida[2] / 1e6, medida[0], medida[0] / segundos, medida[1] / segundos / (1 << 20));
+        }
+        servidor.close();
+        ServidorDistribuidoNQueens.descartarTrabalhos();
+        Files.deleteIfExists(diretorio);
+    }
+
+    // Um trabalho novo de n rainhas atendido por 'conexoes' workers ao mesmo tempo.
+    // Devolve {soluções, bytes de registros enviados, nanossegundos}.
+    private static long[] rodada(int porta, int n, int conexoes) throws Exception {
+        ServidorDistribuidoNQueens.descartarTrabalhos();
+        AtomicLong bytes = new AtomicLong();
+        long[] total = new long[1];
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < conexoes; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    largada.await();
+                    long recebido = executarWorker(porta, n, bytes);
+                    synchronized (total) {
+                        total[0] = recebido;
+                    }
+                } catch (IOException | InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[] {total[0], bytes.get(), System.nanoTime() - inicio};
+    }
+
+    // Worker sintético: responde cada tarefa com os lotes já calculados e devolve o total do FIM
+    private static long executarWorker(int porta, int n, AtomicLong bytes) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), porta)) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ProtocoloDistribuido.enviarPedido(saida, n, ProtocoloDistribuido.MODO_TODAS);
+            int bytesPorSolucao = CodificacaoSolucoes.bytesPorSolucao(n);
+            while (true) {
+                ProtocoloDistribuido.Quadro quadro = ProtocoloDistribuido.ler(entrada);
+                if (quadro.tipo == ProtocoloDistribuido.FIM) {
+                    return quadro.carga.getLong();
+                }
+                int indice = quadro.carga.getInt();
+                int[] prefixo = ProtocoloDistribuido.lerPrefixo(quadro.carga);
+                long contagem = 0;
+                for (byte[] lote : lotesPorPrefixo.computeIfAbsent(Arrays.toString(prefixo), chave -> calcularLotes(n, prefixo))) {
+                    ProtocoloDistribuido.enviarLote(saida, indice, lote, lote.length);
+                    bytes.addAndGet(lote.length);
+                    contagem += lote.length / Math.max(1, bytesPorSolucao);
+                }
+                ProtocoloDistribuido.enviarResultado(saida, indice, contagem);
+            }
+        }
+    }
+
+    // Registros empacotados das soluções com o prefixo, cortados no tamanho de lote do protocolo
+    private static List<byte[]> calcularLotes(int n, int[] prefixo) {
+        int bytesPorSolucao = CodificacaoSolucoes.bytesPorSolucao(n);
+        int porLote = Math.max(1, ProtocoloDistribuido.TAMANHO_LOTE / Math.max(1, bytesPorSolucao)) * bytesPorSolucao;
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        byte[] registro = new byte[bytesPorSolucao];
+        new MotorBitmask(n).enumerar(Arrays.copyOf(prefixo, n), prefixo.length, solucao -> {
+            CodificacaoSolucoes.empacotar(solucao, n, registro, 0);
+            registros.write(registro, 0, registro.length);
+        });
+        byte[] todos = registros.toByteArray();
+        List<byte[]> lotes = new ArrayList<>();
+        for (int inicio = 0; inicio < todos.length; inicio += porLote) {
+            lotes.add(Arrays.copyOfRange(todos, inicio, Math.min(todos.length, inicio + porLote)));
+        }
+        return lotes;
+    }
+}
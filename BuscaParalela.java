@@ -0,0 +1,458 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Escalonador da busca paralela sobre um ForkJoinPool.
+// A árvore de busca é cortada nos prefixos das k primeiras linhas, gerados na ordem da busca.
+// Cada prefixo vira uma subárvore resolvida por um único worker; o intervalo de prefixos é
+// dividido ao meio recursivamente, então workers ociosos roubam as metades ainda pendentes.
+// As contagens podem ser retomadas: com um ponto de controle, as subárvores concluídas são
+// gravadas em disco e puladas na próxima execução; com um prazo, a busca para de começar
+// subárvores novas quando ele vence e devolve a contagem parcial das concluídas.
+public class BuscaParalela {
+    private static final int TAREFAS_POR_THREAD = 8; // Granularidade mínima para equilibrar a carga
+    private static final int TAREFAS_RETOMAVEIS = 1024; // Com ponto de controle ou prazo: subárvores curtas, pouco trabalho perdido
+
+    // Trabalho feito sobre a subárvore de um prefixo
+    interface Folha {
+        void processar(int indice, int[] prefixo, MotorBusca motor);
+    }
+
+    private final int n;
+    private final int paralelismo;
+    private int profundidade;
+    private List<int[]> prefixos;
+    private long[] contagens;
+    private long[] contagensUnicas;
+    private List<List<Simetria.SolucaoCanonica>> unicasPorPrefixo;
+    private Path arquivoPontoDeControle;
+    private long orcamentoNanos = Long.MAX_VALUE;
+    private boolean comPrazo;
+    private long prazo;
+    private PontoDeControle pontoDeControle;
+    private volatile boolean interrompida;
+    private final AtomicInteger tarefasConcluidas = new AtomicInteger();
+    private final Queue<long[]> temposPorWorker = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<long[]> tempoDoWorker = ThreadLocal.withInitial(() -> {
+        long[] tempo = new long[1];
+        temposPorWorker.add(tempo);
+        return tempo;
+    });
+
+    public BuscaParalela(int n, int paralelismo) {
+        this.n = n;
+        this.paralelismo = Math.max(1, paralelismo);
+    }
+
+    // Grava as subárvores concluídas das contagens em 'arquivo' e retoma dele se já existir
+    public void setPontoDeControle(Path arquivo) {
+        this.arquivoPontoDeControle = arquivo;
+    }
+
+    // Tempo máximo de relógio para as contagens; ao vencer, o resultado é parcial (isCompleta() == false)
+    public void setPrazo(long milissegundos) {
+        this.orcamentoNanos = milissegundos * 1_000_000;
+    }
+
+    // Conta todas as soluções explorando só a metade esquerda da primeira linha
+    public long contar() {
+        iniciarContagem("contar");
+        executar((indice, prefixo, motor) -> contagens[indice] = pesoDoEspelho(prefixo) * motor.contar(prefixo, profundidade));
+        return somar(contagens);
+    }
+
+    // Conta separadamente as soluções de cada prefixo de 'profundidade' linhas, na ordem da busca
+    // (a mesma de MotorBitmask.enumerarPrefixos). Um prefixo e o seu espelho têm a mesma contagem,
+    // então só o primeiro dos dois é contado. Não usa ponto de controle nem prazo.
+    public long[] contarPorPrefixo(int profundidade) {
+        iniciarEnumeracao(profundidade);
+        int[] espelhos = new int[prefixos.size()];
+        for (int i = 0; i < espelhos.length; i++) {
+            int[] espelho = prefixos.get(i).clone();
+            for (int linha = 0; linha < espelho.length; linha++) {
+                espelho[linha] = n - 1 - espelho[linha];
+            }
+            espelhos[i] = Collections.binarySearch(prefixos, espelho, Arrays::compare); // Ordem da busca = ordem lexicográfica
+        }
+        contagens = new long[prefixos.size()];
+        executar((indice, prefixo, motor) -> {
+            if (espelhos[indice] >= indice) {
+                contagens[indice] = motor.contar(prefixo, profundidade);
+            }
+        });
+        for (int i = 0; i < espelhos.length; i++) {
+            if (espelhos[i] < i) {
+                contagens[i] = contagens[espelhos[i]];
+            }
+        }
+        return contagens;
+    }
+
+    // Busca só as soluções canônicas; 'guardar' decide se as representantes são mantidas.
+    // Guardando, não há ponto de controle: as representantes das subárvores puladas não estariam lá.
+    public long buscarUnicas(boolean guardar) {
+        if (guardar && arquivoPontoDeControle != null) {
+            throw new IllegalStateException("O ponto de controle só retoma contagens, não as representantes guardadas");
+        }
+        iniciarContagem("unicas");
+        contagensUnicas = new long[prefixos.size()];
+        if (pontoDeControle != null) {
+            for (int i = 0; i < prefixos.size(); i++) {
+                contagensUnicas[i] = pontoDeControle.unicas(i);
+            }
+        }
+        unicasPorPrefixo = new ArrayList<>();
+        for (int i = 0; i < prefixos.size(); i++) {
+            unicasPorPrefixo.add(guardar ? new ArrayList<>() : null);
+        }
+        executar((indice, prefixo, motor) -> {
+            int[] inversa = new int[n];
+            List<Simetria.SolucaoCanonica> unicasDoPrefixo = unicasPorPrefixo.get(indice);
+            motor.enumerar(prefixo, profundidade, solucao -> {
+                int classe = Simetria.classeSeCanonica(solucao, inversa);
+                if (classe > 0) {
+                    contagensUnicas[indice]++;
+                    contagens[indice] += classe;
+                    if (unicasDoPrefixo != null) {
+                        unicasDoPrefixo.add(new Simetria.SolucaoCanonica(solucao.clone(), classe));
+                    }
+                }
+            });
+        });
+        return somar(contagens);
+    }
+
+    // Prepara os prefixos e as contagens, retomando as subárvores do ponto de controle
+    private void iniciarContagem(String modo) {
+        comPrazo = orcamentoNanos != Long.MAX_VALUE;
+        prazo = System.nanoTime() + orcamentoNanos;
+        interrompida = false;
+        pontoDeControle = null;
+        contagensUnicas = null;
+        try {
+            if (arquivoPontoDeControle != null) {
+                pontoDeControle = PontoDeControle.abrir(arquivoPontoDeControle, n, modo);
+            }
+            prepararPrefixos(true, pontoDeControle == null ? 0 : pontoDeControle.getProfundidade());
+            contagens = new long[prefixos.size()];
+            if (pontoDeControle != null) {
+                pontoDeControle.iniciar(profundidade, prefixos.size());
+                for (int i = 0; i < prefixos.size(); i++) {
+                    contagens[i] = pontoDeControle.contagem(i);
+                }
+            }
+            tarefasConcluidas.set(pontoDeControle == null ? 0 : pontoDeControle.getTarefasConcluidas());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // As enumerações não usam ponto de controle nem prazo: sempre percorrem a árvore inteira.
+    // 'fixa' é a profundidade dos prefixos, ou 0 para escolher pelo número de threads.
+    private void iniciarEnumeracao(int fixa) {
+        comPrazo = false;
+        interrompida = false;
+        pontoDeControle = null;
+        tarefasConcluidas.set(0);
+        prepararPrefixos(false, fixa);
+    }
+
+    // Falso se o prazo venceu antes de todas as subárvores serem contadas
+    public boolean isCompleta() {
+        return !interrompida;
+    }
+
+    // Subárvores contadas, incluindo as retomadas do ponto de controle
+    public int getTarefasConcluidas() {
+        return tarefasConcluidas.get();
+    }
+
+    // Enumera todas as soluções. Cada prefixo escreve no seu próprio armazém compacto, sem
+    // trava nem clone por solução, e a fonte devolvida só encadeia os armazéns na ordem dos
+    // prefixos: o resultado é o mesmo da busca sequencial com qualquer número de threads.
+    public FonteSolucoes enumerar() {
+        iniciarEnumeracao(0);
+        ArmazemSolucoes[] armazens = new ArmazemSolucoes[prefixos.size()];
+        executar((indice, prefixo, motor) -> {
+            ArmazemSolucoes armazem = new ArmazemSolucoes(n);
+            motor.enumerar(prefixo, profundidade, armazem);
+            armazens[indice] = armazem;
+        });
+        return new VisaoSolucoes(n, armazens);
+    }
+
+    // Enumera todas as soluções entregando-as a 'destino' na ordem da busca enquanto ela roda.
+    // Cada prefixo concluído é repassado assim que todos os anteriores também estiverem, e o
+    // seu armazém é liberado em seguida; o destino nunca é chamado por duas threads ao mesmo tempo.
+    public long enumerar(ReceptorSolucao destino) {
+        iniciarEnumeracao(0);
+        EntregaOrdenada entrega = new EntregaOrdenada(destino, prefixos.size());
+        executar((indice, prefixo, motor) -> {
+            ArmazemSolucoes armazem = new ArmazemSolucoes(n);
+            motor.enumerar(prefixo, profundidade, armazem);
+            entrega.concluir(indice, armazem);
+        });
+        return entrega.entregues;
+    }
+
+    public long getTotalUnicas() {
+        return contagensUnicas == null ? 0 : somar(contagensUnicas);
+    }
+
+    // Representantes canônicas na ordem da busca (só após buscarUnicas(true))
+    public List<Simetria.SolucaoCanonica> getUnicas() {
+        List<Simetria.SolucaoCanonica> unicas = new ArrayList<>();
+        for (List<Simetria.SolucaoCanonica> unicasDoPrefixo : unicasPorPrefixo) {
+            unicas.addAll(unicasDoPrefixo);
+        }
+        return unicas;
+    }
+
+    public int getProfundidade() {
+        return profundidade;
+    }
+
+    public int getNumeroTarefas() {
+        return prefixos.size();
+    }
+
+    public int getParalelismo() {
+        return paralelismo;
+    }
+
+    // Razão entre o worker mais ocupado e a média, menos 1 (0 = carga perfeitamente distribuída)
+    public double getDesequilibrio() {
+        long maximo = 0, soma = 0;
+        for (long[] tempo : temposPorWorker) {
+            maximo = Math.max(maximo, tempo[0]);
+            soma += tempo[0];
+        }
+        if (soma == 0) {
+            return 0;
+        }
+        double media = (double) soma / paralelismo; // Workers que não pegaram nada contam como ociosos
+        return maximo / media - 1;
+    }
+
+    // Escolhe a menor profundidade k que gera tarefas suficientes para todas as threads,
+    // ou usa a profundidade 'fixa' (a de um ponto de controle sendo retomado) se ela não for 0
+    private void prepararPrefixos(boolean usarEspelho, int fixa) {
+        if (fixa > 0) {
+            profundidade = fixa;
+            prefixos = gerarPrefixos(profundidade, usarEspelho);
+            return;
+        }
+        int minimo = Math.min(n, 2); // Com 2 linhas a coluna central pode ser espelhada pela segunda
+        // Só as contagens (as buscas com espelho) são retomáveis e ganham subárvores menores
+        boolean retomavel = usarEspelho && (arquivoPontoDeControle != null || orcamentoNanos != Long.MAX_VALUE);
+        int tarefas = retomavel ? Math.max(paralelismo * TAREFAS_POR_THREAD, TAREFAS_RETOMAVEIS) : paralelismo * TAREFAS_POR_THREAD;
+        for (profundidade = minimo; ; profundidade++) {
+            prefixos = gerarPrefixos(profundidade, usarEspelho);
+            if (prefixos.size() >= tarefas || profundidade >= n) {
+                break;
+            }
+        }
+    }
+
+    private List<int[]> gerarPrefixos(int profundidade, boolean usarEspelho) {
+        List<int[]> gerados = new ArrayList<>();
+        new MotorBitmask(n).enumerarPrefixos(profundidade, prefixo -> {
+            if (!usarEspelho || pesoDoEspelho(prefixo) > 0) {
+                gerados.add(Arrays.copyOf(prefixo, profundidade));
+            }
+        });
+        return gerados;
+    }
+
+    // Quantas soluções cada solução do prefixo representa quando a metade direita não é explorada.
+    // Na coluna central (n ímpar) o espelho também começa nela, então a segunda linha é que é cortada.
+    private int pesoDoEspelho(int[] prefixo) {
+        if (n <= 1) {
+            return 1;
+        }
+        if (prefixo[0] * 2 + 1 < n) {
+            return 2;
+        }
+        if (prefixo[0] * 2 + 1 == n && prefixo[1] < prefixo[0]) {
+            return 2;
+        }
+        return 0;
+    }
+
+    private void executar(Folha folha) {
+        temposPorWorker.clear();
+        ForkJoinPool pool = new ForkJoinPool(paralelismo);
+        try {
+            pool.invoke(new TarefaIntervalo(folha, 0, prefixos.size()));
+        } finally {
+            pool.shutdown();
+            if (pontoDeControle != null) {
+                try {
+                    pontoDeControle.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    // Decide se a subárvore deve ser pulada: já contada numa execução anterior ou prazo vencido
+    private boolean pular(int indice) {
+        if (pontoDeControle != null && pontoDeControle.concluida(indice)) {
+            return true;
+        }
+        if (comPrazo && System.nanoTime() - prazo > 0) {
+            interrompida = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void registrar(int indice) {
+        tarefasConcluidas.incrementAndGet();
+        if (pontoDeControle != null) {
+            pontoDeControle.registrar(indice, contagens[indice], contagensUnicas == null ? 0 : contagensUnicas[indice]);
+        }
+    }
+
+    private static long somar(long[] valores) {
+        long total = 0;
+        for (long valor : valores) {
+            total += valor;
+        }
+        return total;
+    }
+
+    // Repassa os armazéns dos prefixos ao destino respeitando a ordem dos índices
+    private class EntregaOrdenada {
+        private final ReceptorSolucao destino;
+        private final ArmazemSolucoes[] concluidos;
+        private int proximo;
+        private long entregues;
+
+        EntregaOrdenada(ReceptorSolucao destino, int prefixos) {
+            this.destino = destino;
+            this.concluidos = new ArmazemSolucoes[prefixos];
+        }
+
+        synchronized void concluir(int indice, ArmazemSolucoes armazem) {
+            concluidos[indice] = armazem;
+            int[] rainhas = new int[n];
+            while (proximo < concluidos.length && concluidos[proximo] != null) {
+                ArmazemSolucoes pronto = concluidos[proximo];
+                for (long i = 0; i < pronto.tamanho(); i++) {
+                    pronto.obter(i, rainhas);
+                    destino.aceitar(rainhas);
+                }
+                entregues += pronto.tamanho();
+                concluidos[proximo++] = null; // Libera a memória do prefixo já entregue
+            }
+        }
+    }
+
+    // Visão somente leitura que encadeia os armazéns dos prefixos sem copiá-los
+    private static class VisaoSolucoes implements FonteSolucoes {
+        private final int n;
+        private final ArmazemSolucoes[] armazens;
+        private final long[] inicios; // Índice global da primeira solução de cada armazém
+        private final long tamanho;
+
+        VisaoSolucoes(int n, ArmazemSolucoes[] armazens) {
+            this.n = n;
+            this.armazens = armazens;
+            this.inicios = new long[armazens.length];
+            long acumulado = 0;
+            for (int i = 0; i < armazens.length; i++) {
+                inicios[i] = acumulado;
+                acumulado += armazens[i].tamanho();
+            }
+            this.tamanho = acumulado;
+        }
+
+        @Override
+        public int getN() {
+            return n;
+        }
+
+        @Override
+        public long tamanho() {
+            return tamanho;
+        }
+
+        @Override
+        public void obter(long indice, int[] destino) {
+            if (indice < 0 || indice >= tamanho) {
+                throw new IndexOutOfBoundsException("Índice " + indice + " fora de 0.." + (tamanho - 1));
+            }
+            int armazem = Arrays.binarySearch(inicios, indice);
+            if (armazem < 0) {
+                armazem = -armazem - 2; // Último armazém que começa antes do índice
+            }
+            while (inicios[armazem] + armazens[armazem].tamanho() <= indice) {
+                armazem++; // Pula armazéns vazios que compartilham o mesmo início
+            }
+            armazens[armazem].obter(indice - inicios[armazem], destino);
+        }
+    }
+
+    // Divide o intervalo de prefixos ao meio até sobrar uma única subárvore
+    private class TarefaIntervalo extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Folha folha;
+        private final int inicio, fim;
+
+        TarefaIntervalo(Folha folha, int inicio, int fim) {
+            this.folha = folha;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > 1) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new TarefaIntervalo(folha, inicio, meio), new TarefaIntervalo(folha, meio, fim));
+            } else if (fim > inicio && !pular(inicio)) {
+                long inicioTempo = System.nanoTime();
+                if (MetricasBusca.ATIVAS) {
+                    processarMedindo();
+                } else {
+                    folha.processar(inicio, prefixos.get(inicio), MotorBusca.criar(n));
+                }
+                tempoDoWorker.get()[0] += System.nanoTime() - inicioTempo;
+                registrar(inicio);
+            }
+        }
+
+        // Mesma subárvore, somando o tempo ocupado do worker e emitindo o evento JFR dela
+        private void processarMedindo() {
+            MetricasBusca.Contadores contadores = MetricasBusca.daThreadAtual();
+            MetricasBusca.EventoSubarvore evento = new MetricasBusca.EventoSubarvore();
+            long nosAntes = contadores.totalNos();
+            long rejeicoesAntes = contadores.totalRejeicoes();
+            long inicioTempo = System.nanoTime();
+            evento.begin();
+            folha.processar(inicio, prefixos.get(inicio), MotorBusca.criar(n));
+            evento.end();
+            contadores.nanosOcupado += System.nanoTime() - inicioTempo;
+            if (evento.shouldCommit()) {
+                evento.n = n;
+                evento.indice = inicio;
+                evento.profundidade = profundidade;
+                evento.nos = contadores.totalNos() - nosAntes;
+                evento.rejeicoes = contadores.totalRejeicoes() - rejeicoesAntes;
+                evento.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+// Cache em disco dos resultados do coordenador, por n e modo ("contar", "unicas" ou "todas").
+// Cada resultado tem um arquivo de texto com a contagem e, no modo "todas", o arquivo de
+// soluções no formato de ArquivoSolucoes. Quando o diretório passa do limite de bytes, os
+// resultados usados há mais tempo são apagados. A ordem de uso é a data de modificação da
+// contagem, atualizada a cada acerto, então ela sobrevive a reinícios do servidor.
+public class CacheResultados {
+    private static final String CONTAGEM = ".contagem";
+    private static final String SOLUCOES = ".bin";
+    private static final String PARCIAL = ".parcial";
+
+    private final Path diretorio;
+    private final long limiteBytes;
+    private final LinkedHashMap<String, Long> bytesPorChave = new LinkedHashMap<>(16, 0.75f, true); // Do menos ao mais recente
+    private long bytesUsados;
+
+    public CacheResultados(Path diretorio, long limiteBytes) throws IOException {
+        this.diretorio = diretorio;
+        this.limiteBytes = limiteBytes;
+        Files.createDirectories(diretorio);
+
+        // Arquivos parciais são de trabalhos interrompidos; os demais entram na ordem da última vez usados
+        List<Path> contagens = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio)) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                if (nome.endsWith(PARCIAL)) {
+                    Files.deleteIfExists(arquivo);
+                } else if (nome.endsWith(CONTAGEM)) {
+                    contagens.add(arquivo);
+                }
+            }
+        }
+        contagens.sort(Comparator.comparing(CacheResultados::modificacao));
+        for (Path contagem : contagens) {
+            String nome = contagem.getFileName().toString();
+            String chave = nome.substring(0, nome.length() - CONTAGEM.length());
+            long bytes = tamanho(contagem) + tamanho(diretorio.resolve(chave + SOLUCOES));
+            bytesPorChave.put(chave, bytes);
+            bytesUsados += bytes;
+        }
+        removerExcedente();
+    }
+
+    public static String chave(int n, String modo) {
+        return n + "-" + modo;
+    }
+
+    // Contagem guardada para n no modo, ou null se não estiver no cache
+    public synchronized Long contagem(int n, String modo) throws IOException {
+        String chave = chave(n, modo);
+        if (bytesPorChave.get(chave) == null) { // get() também marca o resultado como o mais recente
+            return null;
+        }
+        Path arquivo = diretorio.resolve(chave + CONTAGEM);
+        try {
+            long contagem = Long.parseLong(new String(Files.readAllBytes(arquivo), StandardCharsets.UTF_8).trim());
+            Files.setLastModifiedTime(arquivo, FileTime.fromMillis(System.currentTimeMillis()));
+            return contagem;
+        } catch (NoSuchFileException | NumberFormatException e) {
+            remover(chave); // Apagado ou corrompido por fora: trata como ausente
+            return null;
+        }
+    }
+
+    // Arquivo de soluções guardado para n, ou null se não estiver no cache
+    public synchronized Path solucoes(int n) throws IOException {
+        Path arquivo = diretorio.resolve(chave(n, "todas") + SOLUCOES);
+        return contagem(n, "todas") != null && Files.exists(arquivo) ? arquivo : null;
+    }
+
+    // Onde um trabalho no modo "todas" grava as soluções antes de entrar no cache
+    public Path arquivoParcial(int n) {
+        return diretorio.resolve(chave(n, "todas") + SOLUCOES + PARCIAL);
+    }
+
+    // Guarda um resultado recém-calculado. Se o mesmo n e modo já estiver no cache, o envio
+    // repetido é descartado (com o arquivo parcial) e o resultado anterior é mantido.
+    public synchronized boolean guardar(int n, String modo, long contagem, Path arquivoParcial) throws IOException {
+        String chave = chave(n, modo);
+        if (bytesPorChave.containsKey(chave)) {
+            if (arquivoParcial != null) {
+                Files.deleteIfExists(arquivoParcial);
+            }
+            return false;
+        }
+        if (arquivoParcial != null) {
+            Path destino = diretorio.resolve(chave + SOLUCOES);
+            try {
+                Files.move(arquivoParcial, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(arquivoParcial, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        // A contagem é gravada por último: sem ela o resultado não existe para o cache
+        Path temporario = diretorio.resolve(chave + CONTAGEM + PARCIAL);
+        Files.write(temporario, Long.toString(contagem).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporario, diretorio.resolve(chave + CONTAGEM), StandardCopyOption.REPLACE_EXISTING);
+
+        long bytes = tamanho(diretorio.resolve(chave + CONTAGEM)) + tamanho(diretorio.resolve(chave + SOLUCOES));
+        bytesPorChave.put(chave, bytes);
+        bytesUsados += bytes;
+        removerExcedente();
+        return bytesPorChave.containsKey(chave);
+    }
+
+    // Apaga todos os resultados guardados
+    public synchronized void esvaziar() throws IOException {
+        for (String chave : new ArrayList<>(bytesPorChave.keySet())) {
+            remover(chave);
+        }
+    }
+
+    public synchronized long getBytesUsados() {
+        return bytesUsados;
+    }
+
+    // Apaga os resultados menos usados até caber no limite; um resultado maior que o limite não fica
+    private void removerExcedente() throws IOException {
+        Iterator<Map.Entry<String, Long>> entradas = bytesPorChave.entrySet().iterator();
+        while (bytesUsados > limiteBytes && entradas.hasNext()) {
+            Map.Entry<String, Long> entrada = entradas.next();
+            String chave = entrada.getKey();
+            bytesUsados -= entrada.getValue();
+            entradas.remove();
+            apagarArquivos(chave);
+            System.out.println("Cache: resultado " + chave + " removido para liberar espaço");
+        }
+    }
+
+    private void remover(String chave) throws IOException {
+        Long bytes = bytesPorChave.remove(chave);
+        if (bytes != null) {
+            bytesUsados -= bytes;
+        }
+        apagarArquivos(chave);
+    }
+
+    private void apagarArquivos(String chave) throws IOException {
+        Files.deleteIfExists(diretorio.resolve(chave + CONTAGEM));
+        Files.deleteIfExists(diretorio.resolve(chave + SOLUCOES));
+    }
+
+    private static long tamanho(Path arquivo) {
+        try {
+            return Files.size(arquivo);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime modificacao(Path arquivo) {
+        try {
+            return Files.getLastModifiedTime(arquivo);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
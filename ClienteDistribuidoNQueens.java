@@ -1,8 +1,14 @@
 import java.io.*;
 import java.net.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.*;
 import java.awt.*;
 
@@ -10,12 +16,24 @@ public class ClienteDistribuidoNQueens {
     private static final int PORTA = 12345;
     private static final String HOST = "localhost"; // Substitua pelo IP do servidor, se necessário
     private static int n;
-    private static List<int[]> solucoes;
-    private static int indiceAtual = 0;
+    private static FonteSolucoes solucoes;
+    private static long indiceAtual = 0;
     private static JFrame janela;
-    private static JPanel painelTabuleiro;
+    private static PainelTabuleiro painelTabuleiro;
+    private static boolean apenasContar; // Modo "--contar": só soma as soluções, sem guardá-las
+    private static boolean apenasUnicas; // Modo "--unicas": conta uma solução por classe de simetria
+    // Só para testes de tolerância a falhas, desligado por padrão: com -Dnqueens.teste.falharApos=k
+    // o processo cai de propósito no meio da tarefa seguinte à k-ésima
+    private static final int FALHAR_APOS = Integer.getInteger("nqueens.teste.falharApos", -1);
+    private static int paralelismo = Runtime.getRuntime().availableProcessors(); // Opção "--threads": tarefas resolvidas ao mesmo tempo
 
     public static void main(String[] args) {
+        apenasContar = Arrays.asList(args).contains("--contar");
+        apenasUnicas = Arrays.asList(args).contains("--unicas");
+        int indiceThreads = Arrays.asList(args).indexOf("--threads");
+        if (indiceThreads >= 0 && indiceThreads + 1 < args.length) {
+            paralelismo = Math.max(1, Integer.parseInt(args[indiceThreads + 1]));
+        }
         try {
             iniciarSimulacao();
         } catch (ExcecaoSemSolucao e) {
@@ -37,18 +55,23 @@ public class ClienteDistribuidoNQueens {
         // Marca o tempo de início
         long inicioTempo = System.nanoTime();
 
-        // Conecta ao servidor
-        Socket socket = new Socket(HOST, PORTA);
-        ObjectOutputStream saida = new ObjectOutputStream(socket.getOutputStream());
+        byte modo = apenasUnicas ? ProtocoloDistribuido.MODO_UNICAS
+                : apenasContar ? ProtocoloDistribuido.MODO_CONTAR : ProtocoloDistribuido.MODO_TODAS;
 
-        // Lista para armazenar as soluções encontradas
-        solucoes = new ArrayList<>();
-        
-        // Calcula todas as soluções possíveis
-        for (int i = 0; i < n; i++) {
-            int[] rainhas = new int[n];
-            rainhas[0] = i;
-            resolverNQueens(rainhas, 1, solucoes);
+        // As soluções deste worker vão para um arquivo local, e não para o heap (não é criado nos modos de contagem)
+        fecharArquivoAnterior();
+        Path arquivoLocal = null;
+        ArquivoSolucoes.Escritor escritorLocal = null;
+        if (modo == ProtocoloDistribuido.MODO_TODAS) {
+            arquivoLocal = Files.createTempFile("nqueens-worker-", ".bin");
+            arquivoLocal.toFile().deleteOnExit();
+            escritorLocal = ArquivoSolucoes.criar(arquivoLocal, n);
+        }
+        Participacao participacao = participar(HOST, PORTA, n, modo, escritorLocal, paralelismo);
+        long total = participacao.total;
+        if (escritorLocal != null) {
+            escritorLocal.close();
+            solucoes = ArquivoSolucoes.abrir(arquivoLocal);
         }
 
         // Calcula o tempo de execução
@@ -57,52 +80,272 @@ public class ClienteDistribuidoNQueens {
 
         // Exibe o tempo de execução no console, mesmo se não houver soluções
         System.out.println("Tempo de execução (s): " + duracao);
+        if (participacao.tarefasResolvidas == 0 && total > 0) {
+            System.out.println("Resultado já disponível no coordenador"
+                    + (participacao.recebidasDoCache > 0 ? " (" + participacao.recebidasDoCache + " soluções recebidas)" : ""));
+        } else {
+            System.out.println("Tarefas resolvidas por este worker: " + participacao.tarefasResolvidas + " (" + participacao.totalLocal
+                    + " soluções) em " + paralelismo + (paralelismo == 1 ? " thread" : " threads"));
+        }
 
         // Verifica se há soluções encontradas
-        if (solucoes.isEmpty()) {
+        if (total == 0) {
             throw new ExcecaoSemSolucao("Nenhuma solução possível encontrada para " + n + " rainhas.");
         }
 
         // Exibe o número de soluções no console
-        System.out.println("Número total de soluções: " + solucoes.size());
+        System.out.println((apenasUnicas ? "Número de soluções únicas: " : "Número total de soluções: ") + total);
+
+        if (solucoes == null || solucoes.tamanho() == 0) {
+            perguntarNovaSimulacao(); // Sem soluções guardadas neste worker não há tabuleiro para exibir
+        } else {
+            // Exibe a interface gráfica com as soluções que este worker encontrou
+            SwingUtilities.invokeLater(() -> criarInterfaceGrafica());
+        }
+    }
 
-        // Envia as soluções para o servidor
-        saida.writeObject(solucoes);
-        saida.close();
-        socket.close();
+    // Resultado da participação de um worker em um trabalho do coordenador
+    static class Participacao {
+        long total;              // Total do trabalho inteiro, informado no FIM
+        long totalLocal;         // Soluções (ou contagem) das tarefas resolvidas aqui
+        int tarefasResolvidas;
+        long recebidasDoCache;   // Soluções recebidas prontas do cache do coordenador
+        private volatile IOException erro; // Primeira falha numa thread do pool
 
-        // Exibe a interface gráfica com as soluções encontradas
-        SwingUtilities.invokeLater(() -> criarInterfaceGrafica());
+        // Chamado pelas threads do pool; lido depois do FIM, que só chega após o último resultado
+        synchronized void registrar(long contagem) {
+            totalLocal += contagem;
+            tarefasResolvidas++;
+        }
+
+        synchronized void falhar(IOException e) {
+            if (erro == null) {
+                erro = e;
+            }
+        }
     }
 
-    // Método recursivo para resolver o problema das N Rainhas
-    private static void resolverNQueens(int[] rainhas, int linha, List<int[]> solucoes) {
-        if (linha == rainhas.length) {
-            solucoes.add(rainhas.clone()); // Adiciona a solução encontrada
-        } else {
-            for (int coluna = 0; coluna < rainhas.length; coluna++) {
-                if (posicaoSegura(rainhas, linha, coluna)) {
-                    rainhas[linha] = coluna;
-                    resolverNQueens(rainhas, linha + 1, solucoes); // Recursão para a próxima linha
+    // Conecta ao coordenador, resolve as tarefas que ele entregar até o FIM e devolve o resumo.
+    // No modo de todas as soluções, cada solução também vai para 'copiaLocal' (se não for null).
+    // A cópia fica na ordem de chegada dos lotes: com 'paralelismo' > 1 os lotes de tarefas
+    // diferentes se intercalam e ela não segue a ordem da busca (o arquivo do coordenador segue).
+    // Não usa Scanner nem Swing, então também serve a execuções em lote (NQueensLote).
+    // As tarefas são resolvidas por 'paralelismo' threads ao mesmo tempo, todas na mesma conexão:
+    // esta thread só lê os quadros do coordenador e repassa cada tarefa ao pool, e cada thread
+    // envia os lotes e o resultado da sua tarefa assim que os tem. Enquanto houver tarefa em
+    // andamento, uma thread manda batimentos para o coordenador não dá-las como perdidas.
+    static Participacao participar(String host, int porta, int n, byte modo, ArquivoSolucoes.Escritor copiaLocal, int paralelismo) throws IOException {
+        Participacao participacao = new Participacao();
+        Batimentos batimentos = null;
+        ExecutorService resolvedores = Executors.newFixedThreadPool(paralelismo, tarefa -> {
+            Thread thread = new Thread(tarefa, "resolvedor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Socket socket = new Socket(host, porta)) {
+            socket.setTcpNoDelay(true); // Tarefas e resultados são mensagens curtas de ida e volta
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ProtocoloDistribuido.enviarPedido(saida, n, modo, paralelismo);
+            batimentos = new Batimentos(saida);
+            batimentos.start();
+            Resolvedor resolvedor = new Resolvedor(socket, saida, n, modo, copiaLocal, participacao, batimentos);
+
+            // Repassa as tarefas recebidas até o coordenador avisar que a busca terminou. O FIM só
+            // vem depois do resultado de todas as tarefas, então nenhuma thread do pool segue ocupada.
+            int recebidas = 0;
+            while (true) {
+                ProtocoloDistribuido.Quadro quadro;
+                try {
+                    quadro = ProtocoloDistribuido.ler(entrada);
+                } catch (IOException e) {
+                    throw participacao.erro != null ? participacao.erro : e; // Uma thread do pool fechou a conexão
+                }
+                if (quadro.tipo == ProtocoloDistribuido.FIM) {
+                    participacao.total = quadro.carga.getLong();
+                    break;
+                }
+                if (quadro.tipo == ProtocoloDistribuido.LOTE) {
+                    // Resultado que já estava no cache do coordenador: as soluções chegam prontas
+                    quadro.carga.getInt();
+                    if (copiaLocal != null) {
+                        synchronized (copiaLocal) {
+                            copiaLocal.aceitarRegistros(quadro.carga.array(), quadro.carga.position(), quadro.carga.remaining());
+                        }
+                    }
+                    participacao.recebidasDoCache += quadro.carga.remaining() / Math.max(1, CodificacaoSolucoes.bytesPorSolucao(n));
+                    continue;
+                }
+                if (quadro.tipo != ProtocoloDistribuido.TAREFA) {
+                    throw new IOException("Quadro inesperado do servidor: " + quadro.tipo);
+                }
+                int indice = quadro.carga.getInt();
+                int[] prefixo = ProtocoloDistribuido.lerPrefixo(quadro.carga);
+                boolean cair = recebidas++ == FALHAR_APOS;
+                resolvedores.execute(() -> resolvedor.resolver(indice, prefixo, cair));
+            }
+        } finally {
+            resolvedores.shutdownNow();
+            if (batimentos != null) {
+                batimentos.interrupt();
+            }
+        }
+        return participacao;
+    }
+
+    static Participacao participar(String host, int porta, int n, byte modo, ArquivoSolucoes.Escritor copiaLocal) throws IOException {
+        return participar(host, porta, n, modo, copiaLocal, 1);
+    }
+
+    // Resolve uma tarefa numa thread do pool e manda o resultado pela conexão compartilhada
+    private static class Resolvedor {
+        private final Socket socket;
+        private final DataOutputStream saida;
+        private final int n;
+        private final byte modo;
+        private final ArquivoSolucoes.Escritor copiaLocal;
+        private final Participacao participacao;
+        private final Batimentos batimentos;
+
+        Resolvedor(Socket socket, DataOutputStream saida, int n, byte modo, ArquivoSolucoes.Escritor copiaLocal,
+                   Participacao participacao, Batimentos batimentos) {
+            this.socket = socket;
+            this.saida = saida;
+            this.n = n;
+            this.modo = modo;
+            this.copiaLocal = copiaLocal;
+            this.participacao = participacao;
+            this.batimentos = batimentos;
+        }
+
+        void resolver(int indice, int[] prefixo, boolean cair) {
+            int[] rainhas = Arrays.copyOf(prefixo, n);
+            batimentos.emAndamento.add(indice);
+            try {
+                if (cair) {
+                    simularQueda(saida, n, indice, rainhas, prefixo.length, modo);
+                }
+                // A tarefa é registrada antes do resultado sair: o FIM pode chegar logo depois dele
+                if (modo == ProtocoloDistribuido.MODO_UNICAS) {
+                    long contagem = contarUnicas(rainhas, prefixo.length);
+                    participacao.registrar(contagem);
+                    ProtocoloDistribuido.enviarResultado(saida, indice, contagem);
+                } else if (modo == ProtocoloDistribuido.MODO_CONTAR) {
+                    long contagem = contarNQueens(rainhas, prefixo.length);
+                    participacao.registrar(contagem);
+                    ProtocoloDistribuido.enviarResultado(saida, indice, contagem);
+                } else {
+                    // Os lotes seguem para o servidor enquanto a busca da tarefa ainda está rodando
+                    ProtocoloDistribuido.EmissorLotes emissor = new ProtocoloDistribuido.EmissorLotes(saida, n, indice, copiaLocal);
+                    resolverNQueens(rainhas, prefixo.length, emissor);
+                    participacao.registrar(emissor.getContagem());
+                    emissor.terminar();
                 }
+            } catch (Throwable e) {
+                // Sem a conexão não há como entregar nada: fecha o socket para a leitura falhar também.
+                // Qualquer outra falha (exceção na busca, falta de memória) deixaria a tarefa sem
+                // resultado e a conexão aberta até o prazo do coordenador, então tem o mesmo fim.
+                participacao.falhar(e instanceof IOException ? (IOException) e
+                        : e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause()
+                        : new IOException("Falha ao resolver a tarefa " + indice, e));
+                try {
+                    socket.close();
+                } catch (IOException ignorada) {
+                    // Já estava fechado
+                }
+            } finally {
+                batimentos.emAndamento.remove(indice);
+            }
+        }
+    }
+
+    // Manda um BATIMENTO a cada intervalo enquanto houver tarefa em andamento. O coordenador conta
+    // o prazo por conexão, então um batimento (com o índice de qualquer uma delas) vale por todas.
+    private static class Batimentos extends Thread {
+        private final DataOutputStream saida;
+        final Set<Integer> emAndamento = ConcurrentHashMap.newKeySet();
+
+        Batimentos(DataOutputStream saida) {
+            super("batimentos");
+            this.saida = saida;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Thread.sleep(ProtocoloDistribuido.INTERVALO_BATIMENTO_MS);
+                    Iterator<Integer> tarefas = emAndamento.iterator();
+                    if (tarefas.hasNext()) {
+                        ProtocoloDistribuido.enviarBatimento(saida, tarefas.next());
+                    }
+                }
+            } catch (InterruptedException | IOException e) {
+                // Participação encerrada ou conexão fechada: a thread principal trata o erro
             }
         }
     }
 
-    // Verifica se a posição atual é segura (não há ataques)
-    private static boolean posicaoSegura(int[] rainhas, int linha, int coluna) {
-        for (int i = 0; i < linha; i++) {
-            if (rainhas[i] == coluna || Math.abs(rainhas[i] - coluna) == Math.abs(i - linha)) {
-                return false; // Há ataque de outra rainha
+    // Teste de tolerância a falhas (-Dnqueens.teste.falharApos): simula a queda do worker no meio
+    // de uma tarefa. No modo de todas as soluções envia a primeira metade das soluções dela e
+    // encerra o processo sem mandar o resultado, como um kill -9
+    private static void simularQueda(DataOutputStream saida, int n, int indice, int[] rainhas, int linha, byte modo) throws IOException {
+        if (modo == ProtocoloDistribuido.MODO_TODAS) {
+            int bytesPorSolucao = CodificacaoSolucoes.bytesPorSolucao(n);
+            ByteArrayOutputStream registros = new ByteArrayOutputStream();
+            byte[] registro = new byte[bytesPorSolucao];
+            resolverNQueens(rainhas, linha, solucao -> {
+                CodificacaoSolucoes.empacotar(solucao, n, registro, 0);
+                registros.write(registro, 0, bytesPorSolucao);
+            });
+            byte[] todos = registros.toByteArray();
+            int metade = todos.length / bytesPorSolucao / 2 * bytesPorSolucao;
+            int porLote = Math.max(1, ProtocoloDistribuido.TAMANHO_LOTE / bytesPorSolucao) * bytesPorSolucao;
+            for (int inicio = 0; inicio < metade; inicio += porLote) {
+                byte[] lote = Arrays.copyOfRange(todos, inicio, Math.min(metade, inicio + porLote));
+                ProtocoloDistribuido.enviarLote(saida, indice, lote, lote.length);
             }
         }
-        return true; // Posição segura
+        System.out.println("[teste nqueens.teste.falharApos] Simulando a queda do worker na tarefa " + indice);
+        Runtime.getRuntime().halt(3);
+    }
+
+    // Fecha o arquivo mapeado da simulação anterior, se houver
+    private static void fecharArquivoAnterior() throws IOException {
+        if (solucoes instanceof ArquivoSolucoes) {
+            ((ArquivoSolucoes) solucoes).close();
+        }
+        solucoes = null;
+    }
+
+    // Resolve o problema das N Rainhas a partir das 'linha' primeiras rainhas já posicionadas
+    private static void resolverNQueens(int[] rainhas, int linha, ReceptorSolucao solucoes) {
+        MotorBusca motor = MotorBusca.criar(rainhas.length);
+        motor.enumerar(rainhas, linha, solucoes); // Cada solução encontrada segue direto para o receptor
+    }
+
+    // Conta as soluções a partir das 'linha' primeiras rainhas, sem alocar nada por solução
+    private static long contarNQueens(int[] rainhas, int linha) {
+        return MotorBusca.criar(rainhas.length).contar(rainhas, linha);
+    }
+
+    // Conta as soluções a partir das 'linha' primeiras rainhas que são as representantes da sua classe de simetria
+    private static long contarUnicas(int[] rainhas, int linha) {
+        int[] inversa = new int[rainhas.length];
+        long[] unicas = new long[1];
+        resolverNQueens(rainhas, linha, solucao -> {
+            if (Simetria.classeSeCanonica(solucao, inversa) != 0) {
+                unicas[0]++;
+            }
+        });
+        return unicas[0];
     }
 
     // Cria a interface gráfica para exibir as soluções
     private static void criarInterfaceGrafica() {
+        indiceAtual = 0;
         janela = new JFrame("Solução N Rainhas");
-        janela.setSize(n * 50, n * 50 + 50);
         janela.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 
         // Adiciona o WindowListener para verificar quando a janela é fechada
@@ -114,57 +357,33 @@ public class ClienteDistribuidoNQueens {
             }
         });
 
-        painelTabuleiro = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                desenharTabuleiro(g, solucoes.get(indiceAtual)); // Desenha a solução atual
-            }
-        };
-
-        painelTabuleiro.setPreferredSize(new Dimension(n * 50, n * 50));
+        // Casas ajustadas ao tamanho da janela, desenhadas uma vez; a cada solução só as rainhas mudam
+        painelTabuleiro = new PainelTabuleiro(solucoes);
         janela.add(painelTabuleiro, BorderLayout.CENTER);
 
         JPanel painelControle = new JPanel();
         JButton botaoVoltar = new JButton("Voltar");
         JButton botaoProximo = new JButton("Próximo");
+        JButton botaoMiniaturas = new JButton("Miniaturas");
 
         botaoVoltar.addActionListener(e -> mostrarSolucao(indiceAtual - 1));
         botaoProximo.addActionListener(e -> mostrarSolucao(indiceAtual + 1));
+        botaoMiniaturas.addActionListener(e -> GradeMiniaturas.abrirJanela(janela, solucoes, ClienteDistribuidoNQueens::mostrarSolucao));
 
         painelControle.add(botaoVoltar);
         painelControle.add(botaoProximo);
+        painelControle.add(botaoMiniaturas);
         janela.add(painelControle, BorderLayout.SOUTH);
 
+        janela.pack();
         janela.setVisible(true);
     }
 
-    // Desenha o tabuleiro de xadrez e as rainhas na solução atual
-    private static void desenharTabuleiro(Graphics g, int[] rainhas) {
-        for (int linha = 0; linha < n; linha++) {
-            for (int coluna = 0; coluna < n; coluna++) {
-                if ((linha + coluna) % 2 == 0) {
-                    g.setColor(Color.WHITE);
-                } else {
-                    g.setColor(Color.GRAY);
-                }
-                g.fillRect(coluna * 50, linha * 50, 50, 50);
-            }
-        }
-
-        // Desenha as rainhas
-        g.setColor(Color.RED);
-        for (int linha = 0; linha < n; linha++) {
-            int coluna = rainhas[linha];
-            g.fillOval(coluna * 50 + 10, linha * 50 + 10, 30, 30);
-        }
-    }
-
     // Exibe a solução na posição do índice fornecido
-    private static void mostrarSolucao(int indice) {
-        if (indice >= 0 && indice < solucoes.size()) {
+    private static void mostrarSolucao(long indice) {
+        if (indice >= 0 && indice < solucoes.tamanho()) {
             indiceAtual = indice;
-            painelTabuleiro.repaint();
+            painelTabuleiro.mostrar(indiceAtual);
         }
     }
 
@@ -0,0 +1,45 @@
+// Codificação de uma solução em um registro de bytes de tamanho fixo.
+// Cada coluna ocupa ceil(log2 n) bits, em ordem little-endian, e o registro é completado até
+// o próximo byte. É o mesmo registro usado no arquivo de soluções e no protocolo binário.
+public class CodificacaoSolucoes {
+
+    private CodificacaoSolucoes() {
+    }
+
+    public static int bytesPorSolucao(int n) {
+        return (n * ArmazemSolucoes.bitsPorColuna(n) + 7) / 8;
+    }
+
+    // Escreve a solução em registro[inicio..inicio + bytesPorSolucao(n))
+    public static void empacotar(int[] rainhas, int n, byte[] registro, int inicio) {
+        int bits = ArmazemSolucoes.bitsPorColuna(n);
+        int tamanho = bytesPorSolucao(n);
+        for (int i = 0; i < tamanho; i++) {
+            registro[inicio + i] = 0;
+        }
+        for (int linha = 0; linha < n; linha++) {
+            int bit = linha * bits;
+            int primeiroByte = inicio + (bit >>> 3);
+            int deslocamento = bit & 7;
+            long deslocado = ((long) rainhas[linha] & ((1L << bits) - 1)) << deslocamento;
+            for (int i = 0; i * 8 < deslocamento + bits; i++) {
+                registro[primeiroByte + i] |= (byte) (deslocado >>> (8 * i));
+            }
+        }
+    }
+
+    // Lê a solução que começa em registro[inicio]
+    public static void desempacotar(byte[] registro, int inicio, int n, int[] destino) {
+        int bits = ArmazemSolucoes.bitsPorColuna(n);
+        for (int linha = 0; linha < n; linha++) {
+            int bit = linha * bits;
+            int primeiroByte = inicio + (bit >>> 3);
+            int deslocamento = bit & 7;
+            long valor = 0;
+            for (int i = 0; i * 8 < deslocamento + bits; i++) {
+                valor |= (registro[primeiroByte + i] & 0xFFL) << (8 * i);
+            }
+            destino[linha] = (int) ((valor >>> deslocamento) & ((1L << bits) - 1));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+
+// Consulta de completamento: um tabuleiro com algumas rainhas já fixadas (em quaisquer linhas, não
+// só nas primeiras) e a pergunta de quantas soluções o completam, ou qual é a primeira delas na
+// ordem da busca. Antes da busca, cada rainha fixada marca nas máscaras de todas as outras linhas
+// a coluna e as duas diagonais que ela ataca; a busca então já descarta essas casas nas linhas de
+// cima, em vez de só descobrir o conflito ao chegar na linha da rainha fixada.
+//
+// Lotes de consultas rodam ao mesmo tempo num pool compartilhado (resolverLote), localmente ou no
+// coordenador (ServidorDistribuidoNQueens, quadros CONSULTAS/RESPOSTAS), com a latência de cada uma.
+// Uso: java ConsultaCompletamento --n 12 (--arquivo tabuleiros.txt | --aleatorias Q [--fixas K] [--semente S])
+//          [--modo contar|primeira] [--threads T] [--servidor host]
+// O arquivo tem um tabuleiro por linha: n colunas (a partir de 0) separadas por espaço, "." nas linhas livres.
+public class ConsultaCompletamento {
+    private final int n;
+    private final long cheio;
+    private final int[] fixas;        // Coluna fixada em cada linha, ou -1
+    private final long[] bloqueadas;  // Por linha: colunas atacadas pelas rainhas fixadas nas outras linhas
+    private final boolean possivel;   // false se duas rainhas fixadas já se atacam
+    private final int[] rainhas;
+
+    // 'tabuleiro[linha]' é a coluna da rainha fixada na linha, ou -1 se a linha está livre
+    public ConsultaCompletamento(int[] tabuleiro) {
+        this.n = tabuleiro.length;
+        if (n > MotorBitmask.N_MAXIMO) {
+            throw new IllegalArgumentException("Consultas suportam até " + MotorBitmask.N_MAXIMO + " rainhas: " + n);
+        }
+        this.cheio = n == 64 ? -1L : (1L << n) - 1;
+        this.fixas = tabuleiro.clone();
+        this.bloqueadas = new long[n];
+        this.rainhas = new int[n];
+        boolean semAtaque = true;
+        for (int linha = 0; linha < n; linha++) {
+            int coluna = fixas[linha];
+            if (coluna < -1 || coluna >= n) {
+                throw new IllegalArgumentException("Coluna " + coluna + " fora do tabuleiro na linha " + linha);
+            }
+            if (coluna < 0) {
+                continue;
+            }
+            for (int outra = 0; outra < n; outra++) {
+                if (outra == linha) {
+                    continue;
+                }
+                int distancia = outra - linha;
+                long ataque = 1L << coluna;
+                if (coluna + distancia >= 0 && coluna + distancia < n) {
+                    ataque |= 1L << (coluna + distancia);
+                }
+                if (coluna - distancia >= 0 && coluna - distancia < n) {
+                    ataque |= 1L << (coluna - distancia);
+                }
+                bloqueadas[outra] |= ataque;
+                if (fixas[outra] >= 0 && (ataque & (1L << fixas[outra])) != 0) {
+                    semAtaque = false;
+                }
+            }
+        }
+        this.possivel = semAtaque;
+    }
+
+    public long contar() {
+        return possivel ? contar(0, 0, 0, 0) : 0;
+    }
+
+    // Primeira solução que completa o tabuleiro, ou null se não há nenhuma
+    public int[] primeira() {
+        return possivel && procurar(0, 0, 0, 0) ? rainhas.clone() : null;
+    }
+
+    // Colunas candidatas da linha: a fixada, ou as livres que nenhuma rainha fixada ataca
+    private long livres(int linha, long colunas, long diag1, long diag2) {
+        long livres = ~(colunas | diag1 | diag2) & cheio;
+        return fixas[linha] >= 0 ? livres & (1L << fixas[linha]) : livres & ~bloqueadas[linha];
+    }
+
+    private long contar(int linha, long colunas, long diag1, long diag2) {
+        if (linha == n) {
+            return 1;
+        }
+        long total = 0;
+        long livres = livres(linha, colunas, diag1, diag2);
+        while (livres != 0) {
+            long bit = livres & -livres;
+            livres ^= bit;
+            total += contar(linha + 1, colunas | bit, ((diag1 | bit) << 1) & cheio, (diag2 | bit) >>> 1);
+        }
+        return total;
+    }
+
+    private boolean procurar(int linha, long colunas, long diag1, long diag2) {
+        if (linha == n) {
+            return true;
+        }
+        long livres = livres(linha, colunas, diag1, diag2);
+        while (livres != 0) {
+            long bit = livres & -livres;
+            livres ^= bit;
+            rainhas[linha] = Long.numberOfTrailingZeros(bit);
+            if (procurar(linha + 1, colunas | bit, ((diag1 | bit) << 1) & cheio, (diag2 | bit) >>> 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Resposta de uma consulta: no MODO_CONTAR, só a contagem; no MODO_PRIMEIRA, 1 e a solução, ou
+    // 0 e null. 'nanos' vai da chegada do lote ao fim da consulta, incluindo a espera no pool.
+    public static class Resultado {
+        public final long contagem;
+        public final int[] solucao;
+        public final long nanos;
+
+        public Resultado(long contagem, int[] solucao, long nanos) {
+            this.contagem = contagem;
+            this.solucao = solucao;
+            this.nanos = nanos;
+        }
+    }
+
+    // Resolve as consultas ao mesmo tempo no pool e devolve os resultados na ordem dos tabuleiros
+    public static Resultado[] resolverLote(List<int[]> tabuleiros, byte modo, ExecutorService pool) throws InterruptedException {
+        long chegada = System.nanoTime();
+        List<Callable<Resultado>> tarefas = new ArrayList<>(tabuleiros.size());
+        for (int[] tabuleiro : tabuleiros) {
+            tarefas.add(() -> {
+                ConsultaCompletamento consulta = new ConsultaCompletamento(tabuleiro);
+                if (modo == ProtocoloDistribuido.MODO_PRIMEIRA) {
+                    int[] solucao = consulta.primeira();
+                    return new Resultado(solucao == null ? 0 : 1, solucao, System.nanoTime() - chegada);
+                }
+                return new Resultado(consulta.contar(), null, System.nanoTime() - chegada);
+            });
+        }
+        List<Future<Resultado>> futuros = pool.invokeAll(tarefas);
+        Resultado[] resultados = new Resultado[futuros.size()];
+        for (int i = 0; i < resultados.length; i++) {
+            try {
+                resultados[i] = futuros.get(i).get();
+            } catch (ExecutionException e) {
+                throw new IllegalArgumentException("Consulta " + i + ": " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return resultados;
+    }
+
+    // Envia as consultas ao coordenador em lotes de até MAX_CONSULTAS_POR_LOTE, um lote por vez
+    public static Resultado[] consultarServidor(String host, int porta, int n, byte modo, List<int[]> tabuleiros) throws IOException {
+        Resultado[] resultados = new Resultado[tabuleiros.size()];
+        try (Socket socket = new Socket(host, porta)) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            for (int inicio = 0; inicio < tabuleiros.size(); inicio += ProtocoloDistribuido.MAX_CONSULTAS_POR_LOTE) {
+                int fim = Math.min(tabuleiros.size(), inicio + ProtocoloDistribuido.MAX_CONSULTAS_POR_LOTE);
+                ProtocoloDistribuido.enviarConsultas(saida, modo, n, tabuleiros, inicio, fim);
+                ProtocoloDistribuido.Quadro quadro = ProtocoloDistribuido.ler(entrada, ProtocoloDistribuido.RESPOSTAS);
+                Resultado[] lote = ProtocoloDistribuido.lerRespostas(quadro.carga, modo, n);
+                if (lote.length != fim - inicio) {
+                    throw new IOException("O coordenador respondeu " + lote.length + " de " + (fim - inicio) + " consultas");
+                }
+                System.arraycopy(lote, 0, resultados, inicio, lote.length);
+            }
+        }
+        return resultados;
+    }
+
+    // Percentis 50, 90, 99 e o máximo das latências, em milissegundos
+    public static String resumirLatencias(long[] nanos) {
+        if (nanos.length == 0) {
+            return "sem consultas";
+        }
+        long[] ordenadas = nanos.clone();
+        Arrays.sort(ordenadas);
+        return String.format(Locale.ROOT, "p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, máx %.3f ms",
+                percentil(ordenadas, 0.50) / 1e6, percentil(ordenadas, 0.90) / 1e6,
+                percentil(ordenadas, 0.99) / 1e6, ordenadas[ordenadas.length - 1] / 1e6);
+    }
+
+    private static long percentil(long[] ordenadas, double fracao) {
+        int posicao = (int) Math.ceil(fracao * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(ordenadas.length - 1, posicao))];
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int n = lerOpcaoInteira(args, "--n", -1);
+        String caminho = lerOpcao(args, "--arquivo");
+        int aleatorias = lerOpcaoInteira(args, "--aleatorias", 0);
+        if (n < 1 || n > MotorBitmask.N_MAXIMO || (caminho == null) == (aleatorias <= 0)) {
+            System.err.println("Uso: java ConsultaCompletamento --n 1..64 (--arquivo tabuleiros.txt | --aleatorias Q [--fixas K] [--semente S])"
+                    + " [--modo contar|primeira] [--threads T] [--servidor host]");
+            System.exit(2);
+        }
+        byte modo = "primeira".equals(lerOpcao(args, "--modo")) ? ProtocoloDistribuido.MODO_PRIMEIRA : ProtocoloDistribuido.MODO_CONTAR;
+        List<int[]> tabuleiros = caminho != null ? lerTabuleiros(caminho, n)
+                : sortearTabuleiros(n, aleatorias, lerOpcaoInteira(args, "--fixas", n / 2), lerOpcaoInteira(args, "--semente", 1));
+        String servidor = lerOpcao(args, "--servidor");
+
+        long inicio = System.nanoTime();
+        Resultado[] resultados;
+        if (servidor != null) {
+            resultados = consultarServidor(servidor, 12345, n, modo, tabuleiros);
+        } else {
+            int threads = lerOpcaoInteira(args, "--threads", Runtime.getRuntime().availableProcessors());
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                resultados = new Resultado[tabuleiros.size()];
+                for (int lote = 0; lote < tabuleiros.size(); lote += ProtocoloDistribuido.MAX_CONSULTAS_POR_LOTE) {
+                    int fim = Math.min(tabuleiros.size(), lote + ProtocoloDistribuido.MAX_CONSULTAS_POR_LOTE);
+                    Resultado[] parcial = resolverLote(tabuleiros.subList(lote, fim), modo, pool);
+                    System.arraycopy(parcial, 0, resultados, lote, parcial.length);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long duracao = System.nanoTime() - inicio;
+
+        long[] latencias = new long[resultados.length];
+        long total = 0;
+        for (int i = 0; i < resultados.length; i++) {
+            latencias[i] = resultados[i].nanos;
+            total += resultados[i].contagem;
+            if (caminho != null) {
+                System.out.println(modo == ProtocoloDistribuido.MODO_PRIMEIRA
+                        ? (resultados[i].solucao == null ? "sem solução" : Arrays.toString(resultados[i].solucao))
+                        : Long.toString(resultados[i].contagem));
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d consultas de %d rainhas (%s) em %.1f ms, %s: %d%n", resultados.length, n,
+                servidor != null ? "coordenador " + servidor : "local", duracao / 1e6,
+                modo == ProtocoloDistribuido.MODO_PRIMEIRA ? "com solução" : "soluções somadas", total);
+        System.out.println("Latência por consulta: " + resumirLatencias(latencias));
+    }
+
+    private static List<int[]> lerTabuleiros(String caminho, int n) throws IOException {
+        List<int[]> tabuleiros = new ArrayList<>();
+        for (String linha : Files.readAllLines(Paths.get(caminho), StandardCharsets.UTF_8)) {
+            if (linha.isBlank()) {
+                continue;
+            }
+            String[] colunas = linha.trim().split("\\s+");
+            if (colunas.length != n) {
+                throw new IOException("Tabuleiro com " + colunas.length + " linhas em vez de " + n + ": " + linha);
+            }
+            int[] tabuleiro = new int[n];
+            for (int i = 0; i < n; i++) {
+                tabuleiro[i] = colunas[i].equals(".") ? -1 : Integer.parseInt(colunas[i]);
+            }
+            tabuleiros.add(tabuleiro);
+        }
+        return tabuleiros;
+    }
+
+    // Tabuleiros com até 'fixas' rainhas de uma solução sorteada, então cada um tem pelo menos uma
+    // solução (n = 2 e 3, que não têm solução, ficam com as rainhas em colunas sorteadas)
+    private static List<int[]> sortearTabuleiros(int n, int quantidade, int fixas, long semente) {
+        SplittableRandom aleatorio = new SplittableRandom(semente);
+        List<int[]> tabuleiros = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            int[] solucao = SolucaoUnica.minimosConflitos(n, aleatorio.nextLong());
+            int[] tabuleiro = new int[n];
+            Arrays.fill(tabuleiro, -1);
+            for (int j = 0; j < Math.min(fixas, n); j++) {
+                int linha = aleatorio.nextInt(n);
+                tabuleiro[linha] = solucao != null ? solucao[linha] : aleatorio.nextInt(n);
+            }
+            tabuleiros.add(tabuleiro);
+        }
+        return tabuleiros;
+    }
+
+    private static String lerOpcao(String[] args, String opcao) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(opcao)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    private static int lerOpcaoInteira(String[] args, String opcao, int padrao) {
+        String valor = lerOpcao(args, opcao);
+        return valor == null ? padrao : Integer.parseInt(valor);
+    }
+}
@@ -0,0 +1,10 @@
+// Conjunto de soluções lido por índice, na ordem da busca.
+// É o que a interface gráfica precisa para paginar as soluções sem saber onde elas estão guardadas.
+public interface FonteSolucoes {
+    int getN();
+
+    long tamanho();
+
+    // Copia a solução de número 'indice' para 'destino', que deve ter n posições
+    void obter(long indice, int[] destino);
+}
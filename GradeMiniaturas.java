@@ -0,0 +1,130 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.function.LongConsumer;
+
+// Grade de miniaturas das soluções, virtualizada: só as soluções das linhas visíveis são lidas da
+// fonte e desenhadas, então rolar por milhões de soluções custa o mesmo que rolar por dez. A barra
+// de rolagem conta linhas da grade, e não pixels, para não esbarrar no limite de int das
+// coordenadas do Swing. As casas de todas as miniaturas vêm de uma única imagem guardada.
+public class GradeMiniaturas extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final int LADO_MINIATURA = 96;
+    private static final int ESPACO = 8;   // Entre as miniaturas
+    private static final int ROTULO = 14;  // Altura do número da solução abaixo de cada miniatura
+    private static final int LARGURA_CELULA = LADO_MINIATURA + ESPACO;
+    private static final int ALTURA_CELULA = LADO_MINIATURA + ROTULO + ESPACO;
+
+    private final FonteSolucoes solucoes;
+    private final JScrollBar barra = new JScrollBar(JScrollBar.VERTICAL);
+    private final JPanel area;
+    private final BufferedImage casas;
+    private long primeiraCarregada; // Soluções da página atual, reaproveitadas entre repinturas e rolagens
+    private int[][] carregadas = new int[0][];
+
+    // 'aoEscolher' recebe o índice da miniatura clicada
+    public GradeMiniaturas(FonteSolucoes solucoes, LongConsumer aoEscolher) {
+        super(new BorderLayout());
+        this.solucoes = solucoes;
+        this.casas = PainelTabuleiro.desenharCasas(solucoes.getN(), LADO_MINIATURA);
+        this.area = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                desenharPagina(g);
+            }
+        };
+        area.setPreferredSize(new Dimension(6 * LARGURA_CELULA + ESPACO, 5 * ALTURA_CELULA + ESPACO));
+        add(area, BorderLayout.CENTER);
+        add(barra, BorderLayout.EAST);
+
+        barra.addAdjustmentListener(e -> area.repaint());
+        area.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                ajustarBarra();
+            }
+        });
+        area.addMouseWheelListener(e -> barra.setValue(barra.getValue() + e.getWheelRotation()));
+        area.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int coluna = (e.getX() - ESPACO / 2) / LARGURA_CELULA;
+                long indice = ((long) barra.getValue() + e.getY() / ALTURA_CELULA) * colunas() + coluna;
+                if (coluna < colunas() && indice < solucoes.tamanho()) {
+                    aoEscolher.accept(indice);
+                }
+            }
+        });
+    }
+
+    // Abre a grade numa janela que fecha junto com a janela 'dono'
+    public static JDialog abrirJanela(Window dono, FonteSolucoes solucoes, LongConsumer aoEscolher) {
+        JDialog janela = new JDialog(dono, "Miniaturas das soluções", Dialog.ModalityType.MODELESS);
+        janela.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        janela.add(new GradeMiniaturas(solucoes, aoEscolher));
+        janela.pack();
+        janela.setLocationRelativeTo(dono);
+        janela.setVisible(true);
+        return janela;
+    }
+
+    private int colunas() {
+        return Math.max(1, (area.getWidth() - ESPACO) / LARGURA_CELULA);
+    }
+
+    private int linhasVisiveis() {
+        return Math.max(1, (area.getHeight() - ESPACO) / ALTURA_CELULA);
+    }
+
+    // Refaz a escala da barra quando o número de colunas muda, mantendo a primeira solução visível
+    private void ajustarBarra() {
+        int colunas = colunas();
+        long linhas = (solucoes.tamanho() + colunas - 1) / colunas;
+        int total = (int) Math.min(linhas, Integer.MAX_VALUE); // Além disso o fim da grade não é alcançado pela barra
+        int visiveis = linhasVisiveis();
+        int primeira = (int) Math.min(primeiraCarregada / colunas, total);
+        barra.setValues(primeira, Math.min(visiveis, total), 0, total);
+        barra.setBlockIncrement(visiveis);
+    }
+
+    private void desenharPagina(Graphics g) {
+        int colunas = colunas();
+        long primeira = (long) barra.getValue() * colunas;
+        int quantidade = (int) Math.max(0, Math.min((long) linhasVisiveis() * colunas, solucoes.tamanho() - primeira));
+        carregar(primeira, quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            int x = ESPACO + (i % colunas) * LARGURA_CELULA;
+            int y = ESPACO + (i / colunas) * ALTURA_CELULA;
+            g.drawImage(casas, x, y, null);
+            PainelTabuleiro.desenharRainhas(g, carregadas[i], x, y, LADO_MINIATURA);
+            g.setColor(Color.BLACK);
+            g.drawString(Long.toString(primeira + i), x, y + LADO_MINIATURA + ROTULO - 2);
+        }
+    }
+
+    // Lê da fonte só as soluções da página que não estavam na página anterior: rolar uma linha
+    // custa uma linha de leituras, o que importa quando cada leitura é uma descida no índice em disco
+    private void carregar(long primeira, int quantidade) {
+        if (primeira == primeiraCarregada && quantidade == carregadas.length) {
+            return;
+        }
+        int n = solucoes.getN();
+        int[][] novas = new int[quantidade][];
+        for (int i = 0; i < quantidade; i++) {
+            long anterior = primeira + i - primeiraCarregada;
+            if (anterior >= 0 && anterior < carregadas.length) {
+                novas[i] = carregadas[(int) anterior];
+            } else {
+                novas[i] = new int[n];
+                solucoes.obter(primeira + i, novas[i]);
+            }
+        }
+        carregadas = novas;
+        primeiraCarregada = primeira;
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Acesso direto à k-ésima solução (na ordem da busca) sem enumerar nem guardar as anteriores.
+// O índice guarda só quantas soluções há abaixo de cada prefixo das primeiras linhas; para achar
+// a solução k, uma busca binária nas somas acumuladas escolhe o prefixo e, a partir dele, cada
+// linha desce para a coluna cuja subárvore contém k, contando as subárvores das colunas anteriores.
+// A posição de uma solução dada é o caminho inverso. Cada consulta custa mais ou menos uma
+// contagem da subárvore de um prefixo, e o índice todo só exige contar as soluções uma vez.
+//
+// O índice fica em disco, um arquivo por n no diretório escolhido (indice-<n>.bin):
+// cabeçalho de 20 bytes (mágico, versão, n, profundidade, número de prefixos) seguido da
+// contagem (long) de cada prefixo. Os prefixos não são gravados: eles são gerados de novo,
+// na mesma ordem, a partir de n e da profundidade.
+public class IndiceSolucoes implements FonteSolucoes {
+    public static final int MAGICO = 0x4E514958; // "NQIX"
+    public static final int VERSAO = 1;
+    private static final int PREFIXOS_MINIMOS = 1 << 14; // Com isso, cada subárvore é uma fração pequena da busca
+
+    private final int n;
+    private final int profundidade;
+    private final List<int[]> prefixos;
+    private final long[] inicios; // Posição da primeira solução de cada prefixo
+    private final long tamanho;
+    private final MotorBusca motor;
+    private final int[] rainhas;
+    private long ultimoIndice = -1; // A interface pede a mesma solução a cada repintura
+    private final int[] ultimaSolucao;
+
+    private IndiceSolucoes(int n, int profundidade, List<int[]> prefixos, long[] contagens) {
+        this.n = n;
+        this.profundidade = profundidade;
+        this.prefixos = prefixos;
+        this.inicios = new long[contagens.length];
+        long acumulado = 0;
+        for (int i = 0; i < contagens.length; i++) {
+            inicios[i] = acumulado;
+            acumulado += contagens[i];
+        }
+        this.tamanho = acumulado;
+        this.motor = MotorBusca.criar(n);
+        this.rainhas = new int[n];
+        this.ultimaSolucao = new int[n];
+    }
+
+    // Lê o índice de n do diretório ou, se ele não existir (ou for de outra versão), conta as
+    // subárvores com 'paralelismo' threads e grava o índice para as próximas vezes
+    public static IndiceSolucoes carregar(Path diretorio, int n, int paralelismo) throws IOException {
+        int profundidade = escolherProfundidade(n);
+        List<int[]> prefixos = gerarPrefixos(n, profundidade);
+        Path arquivo = diretorio.resolve("indice-" + n + ".bin");
+        long[] contagens = null;
+        if (Files.exists(arquivo)) {
+            contagens = ler(arquivo, n, profundidade, prefixos.size());
+            if (contagens == null) {
+                System.out.println("Índice " + arquivo + " é de outra versão; construindo de novo");
+            }
+        }
+        if (contagens == null) {
+            System.out.printf("Construindo o índice de %d rainhas (%d prefixos de %d linhas)...%n", n, prefixos.size(), profundidade);
+            long inicio = System.nanoTime();
+            contagens = new BuscaParalela(n, paralelismo).contarPorPrefixo(profundidade);
+            System.out.printf("Índice construído em %d s%n", (System.nanoTime() - inicio) / 1_000_000_000);
+            Files.createDirectories(diretorio);
+            gravar(arquivo, n, profundidade, contagens);
+        }
+        return new IndiceSolucoes(n, profundidade, prefixos, contagens);
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    @Override
+    public long tamanho() {
+        return tamanho;
+    }
+
+    public int getProfundidade() {
+        return profundidade;
+    }
+
+    // A solução na posição 'indice' da ordem da busca
+    @Override
+    public synchronized void obter(long indice, int[] destino) {
+        if (indice < 0 || indice >= tamanho) {
+            throw new IndexOutOfBoundsException("Índice " + indice + " fora de 0.." + (tamanho - 1));
+        }
+        if (indice != ultimoIndice) {
+            descer(indice);
+            System.arraycopy(rainhas, 0, ultimaSolucao, 0, n);
+            ultimoIndice = indice;
+        }
+        System.arraycopy(ultimaSolucao, 0, destino, 0, n);
+    }
+
+    // Posição de uma solução na ordem da busca; falha se 'solucao' não for uma solução de n rainhas
+    public synchronized long posicao(int[] solucao) {
+        if (solucao.length != n || SolucaoUnica.verificar(solucao) >= 0) {
+            throw new IllegalArgumentException("Não é uma solução de " + n + " rainhas: " + Arrays.toString(solucao));
+        }
+        int prefixo = Collections.binarySearch(prefixos, Arrays.copyOf(solucao, profundidade), Arrays::compare);
+        long posicao = inicios[prefixo];
+        System.arraycopy(solucao, 0, rainhas, 0, n);
+        for (int linha = profundidade; linha < n - 1; linha++) {
+            // Soma as soluções das colunas que a busca visita antes da coluna da solução
+            for (int coluna = 0; coluna < solucao[linha]; coluna++) {
+                rainhas[linha] = coluna;
+                posicao += motor.contar(rainhas, linha + 1);
+            }
+            rainhas[linha] = solucao[linha];
+        }
+        return posicao;
+    }
+
+    // Monta em 'rainhas' a solução 'indice': escolhe o prefixo e desce uma linha por vez
+    private void descer(long indice) {
+        int prefixo = Arrays.binarySearch(inicios, indice);
+        if (prefixo < 0) {
+            prefixo = -prefixo - 2; // Último prefixo que começa antes do índice
+        }
+        while (prefixo + 1 < inicios.length && inicios[prefixo + 1] <= indice) {
+            prefixo++; // Pula prefixos sem soluções que compartilham o mesmo início
+        }
+        System.arraycopy(prefixos.get(prefixo), 0, rainhas, 0, profundidade);
+        long resto = indice - inicios[prefixo];
+        for (int linha = profundidade; linha < n; linha++) {
+            for (int coluna = 0; ; coluna++) {
+                rainhas[linha] = coluna;
+                long abaixo = motor.contar(rainhas, linha + 1); // 0 se a coluna é atacada
+                if (resto < abaixo) {
+                    break;
+                }
+                resto -= abaixo;
+            }
+        }
+    }
+
+    // A menor profundidade com PREFIXOS_MINIMOS prefixos (ou todas as linhas, para n pequeno)
+    private static int escolherProfundidade(int n) {
+        int profundidade = Math.min(n, 1);
+        while (profundidade < n && contarPrefixos(n, profundidade) < PREFIXOS_MINIMOS) {
+            profundidade++;
+        }
+        return profundidade;
+    }
+
+    private static long contarPrefixos(int n, int profundidade) {
+        long[] quantidade = new long[1];
+        new MotorBitmask(n).enumerarPrefixos(profundidade, prefixo -> quantidade[0]++);
+        return quantidade[0];
+    }
+
+    private static List<int[]> gerarPrefixos(int n, int profundidade) {
+        List<int[]> gerados = new ArrayList<>();
+        new MotorBitmask(n).enumerarPrefixos(profundidade, prefixo -> gerados.add(Arrays.copyOf(prefixo, profundidade)));
+        return gerados;
+    }
+
+    // Contagens do arquivo, ou null se ele for de outra versão ou de outra profundidade
+    private static long[] ler(Path arquivo, int n, int profundidade, int quantidade) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+            if (entrada.readInt() != MAGICO) {
+                throw new IOException(arquivo + " não é um índice de soluções N Rainhas");
+            }
+            int versao = entrada.readInt();
+            int nArquivo = entrada.readInt();
+            if (nArquivo != n) {
+                throw new IOException("O índice " + arquivo + " é de " + nArquivo + " rainhas, não de " + n);
+            }
+            if (versao != VERSAO || entrada.readInt() != profundidade || entrada.readInt() != quantidade) {
+                return null;
+            }
+            long[] contagens = new long[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                contagens[i] = entrada.readLong();
+            }
+            return contagens;
+        } catch (EOFException e) {
+            return null; // Gravação interrompida: o índice é refeito
+        }
+    }
+
+    // Grava num arquivo temporário e troca pelo definitivo, para nunca deixar um índice pela metade
+    private static void gravar(Path arquivo, int n, int profundidade, long[] contagens) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".parcial");
+        try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporario)))) {
+            saida.writeInt(MAGICO);
+            saida.writeInt(VERSAO);
+            saida.writeInt(n);
+            saida.writeInt(profundidade);
+            saida.writeInt(contagens.length);
+            for (long contagem : contagens) {
+                saida.writeLong(contagem);
+            }
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
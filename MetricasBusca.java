@@ -0,0 +1,225 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+// Contadores opcionais da busca: nós visitados e colunas rejeitadas por profundidade (as que
+// posicaoSegura recusaria), soluções e, na busca paralela, tempo ocupado de cada worker.
+// Ligados com -Dnqueens.metricas=true. O flag é static final, então com as métricas desligadas
+// o JIT remove os "if (MetricasBusca.ATIVAS)" do caminho quente e a busca não paga nada.
+//
+// Cada thread escreve só nos seus próprios contadores, sem trava nem atomic. A leitura durante
+// a busca (relatório periódico, evento JFR periódico) é aproximada; depois do fim ela é exata.
+// Com um JFR gravando (-XX:StartFlightRecording), saem também os eventos nqueens.Subarvore,
+// um por prefixo da busca paralela, e nqueens.Metricas, a cada segundo.
+public final class MetricasBusca {
+    public static final boolean ATIVAS = Boolean.getBoolean("nqueens.metricas");
+    private static final long PERIODO_MS = Long.getLong("nqueens.metricas.periodo", 1000); // Intervalo do relatório periódico
+    private static final int PROFUNDIDADES = MotorBitmask.N_MAXIMO + 1;
+
+    private static final List<Contadores> registrados = new CopyOnWriteArrayList<>();
+    private static volatile int geracao;
+    private static volatile long inicioNanos = System.nanoTime();
+    private static final ThreadLocal<Contadores> daThread = new ThreadLocal<>();
+
+    static {
+        if (ATIVAS) {
+            FlightRecorder.addPeriodicEvent(EventoMetricas.class, MetricasBusca::emitirEventoPeriodico);
+        }
+    }
+
+    private MetricasBusca() {
+    }
+
+    // Contadores de uma thread
+    public static final class Contadores {
+        final String thread;
+        final int geracao;
+        final long[] nos = new long[PROFUNDIDADES];        // Nós com 'linha' rainhas posicionadas; nos[n] são as soluções
+        final long[] rejeicoes = new long[PROFUNDIDADES];  // Colunas atacadas na linha, descartadas sem descer
+        long nanosOcupado;                                 // Tempo dentro de subárvores (busca paralela)
+
+        Contadores(String thread, int geracao) {
+            this.thread = thread;
+            this.geracao = geracao;
+        }
+
+        // Um nó na linha 'linha' com o conjunto de colunas livres já calculado
+        void visitar(int linha, int n, long livres) {
+            nos[linha]++;
+            rejeicoes[linha] += n - Long.bitCount(livres);
+        }
+
+        void solucao(int n) {
+            nos[n]++;
+        }
+
+        long totalNos() {
+            long total = 0;
+            for (long valor : nos) {
+                total += valor;
+            }
+            return total;
+        }
+
+        long totalRejeicoes() {
+            long total = 0;
+            for (long valor : rejeicoes) {
+                total += valor;
+            }
+            return total;
+        }
+    }
+
+    // Contadores da thread atual, criados no primeiro uso depois de cada reiniciar()
+    public static Contadores daThreadAtual() {
+        Contadores contadores = daThread.get();
+        if (contadores == null || contadores.geracao != geracao) {
+            contadores = new Contadores(Thread.currentThread().getName(), geracao);
+            daThread.set(contadores);
+            registrados.add(contadores);
+        }
+        return contadores;
+    }
+
+    // Zera tudo antes de uma nova busca; as threads se registram de novo ao continuar contando
+    public static synchronized void reiniciar() {
+        geracao++;
+        registrados.clear();
+        inicioNanos = System.nanoTime();
+    }
+
+    // Fotografia dos contadores somados de todas as threads
+    public static Instantaneo instantaneo() {
+        Instantaneo foto = new Instantaneo();
+        foto.nanosDecorridos = System.nanoTime() - inicioNanos;
+        for (Contadores contadores : registrados) {
+            long nosDaThread = 0;
+            for (int linha = 0; linha < PROFUNDIDADES; linha++) {
+                foto.nos[linha] += contadores.nos[linha];
+                foto.rejeicoes[linha] += contadores.rejeicoes[linha];
+                nosDaThread += contadores.nos[linha];
+            }
+            foto.threads.add(contadores.thread);
+            foto.nosPorThread.add(nosDaThread);
+            foto.nanosOcupadoPorThread.add(contadores.nanosOcupado);
+        }
+        return foto;
+    }
+
+    public static final class Instantaneo {
+        public final long[] nos = new long[PROFUNDIDADES];
+        public final long[] rejeicoes = new long[PROFUNDIDADES];
+        public final List<String> threads = new ArrayList<>();
+        public final List<Long> nosPorThread = new ArrayList<>();
+        public final List<Long> nanosOcupadoPorThread = new ArrayList<>();
+        public long nanosDecorridos;
+
+        public long totalNos() {
+            long total = 0;
+            for (long valor : nos) {
+                total += valor;
+            }
+            return total;
+        }
+
+        public long totalRejeicoes() {
+            long total = 0;
+            for (long valor : rejeicoes) {
+                total += valor;
+            }
+            return total;
+        }
+
+        // Resumo de uma linha, usado pelo relatório periódico
+        public String resumo() {
+            double segundos = Math.max(1e-9, nanosDecorridos / 1e9);
+            return String.format(Locale.ROOT, "[métricas] %.1f s: %,d nós (%,.0f nós/s), %,d rejeições, %d threads",
+                    segundos, totalNos(), totalNos() / segundos, totalRejeicoes(), threads.size());
+        }
+
+        // Detalhe por profundidade de n rainhas e por worker, impresso no fim da busca
+        public void imprimir(PrintStream saida, int n) {
+            saida.println(resumo());
+            saida.printf("%12s %16s %16s%n", "Profundidade", "Nós", "Rejeições");
+            for (int linha = 0; linha <= n && linha < PROFUNDIDADES; linha++) {
+                saida.printf(Locale.ROOT, "%12d %,16d %,16d%s%n", linha, nos[linha], rejeicoes[linha], linha == n ? "  (soluções)" : "");
+            }
+            for (int i = 0; i < threads.size(); i++) {
+                if (nosPorThread.get(i) == 0) {
+                    continue; // Threads que só montaram os prefixos
+                }
+                long ocupado = nanosOcupadoPorThread.get(i);
+                saida.printf(Locale.ROOT, "%-32s %,16d nós %,14.0f nós/s ocupado%n", threads.get(i), nosPorThread.get(i),
+                        ocupado == 0 ? 0.0 : nosPorThread.get(i) / (ocupado / 1e9));
+            }
+        }
+    }
+
+    // Imprime um resumo a cada -Dnqueens.metricas.periodo ms (padrão 1000) até ser interrompida
+    public static Thread iniciarRelatorio(PrintStream saida) {
+        Thread relatorio = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(PERIODO_MS);
+                    saida.println(instantaneo().resumo());
+                }
+            } catch (InterruptedException e) {
+                // Busca terminou
+            }
+        }, "relatorio-metricas");
+        relatorio.setDaemon(true);
+        relatorio.start();
+        return relatorio;
+    }
+
+    private static void emitirEventoPeriodico() {
+        Instantaneo foto = instantaneo();
+        EventoMetricas evento = new EventoMetricas();
+        evento.nos = foto.totalNos();
+        evento.rejeicoes = foto.totalRejeicoes();
+        evento.threads = foto.threads.size();
+        evento.nosPorSegundo = foto.totalNos() / Math.max(1e-9, foto.nanosDecorridos / 1e9);
+        evento.commit();
+    }
+
+    @Name("nqueens.Subarvore")
+    @Label("Subárvore da busca")
+    @Category("N Rainhas")
+    @Description("Busca completa a partir de um prefixo, feita por um worker")
+    public static class EventoSubarvore extends Event {
+        @Label("n")
+        public int n;
+        @Label("Índice do prefixo")
+        public int indice;
+        @Label("Profundidade do prefixo")
+        public int profundidade;
+        @Label("Nós visitados")
+        public long nos;
+        @Label("Rejeições")
+        public long rejeicoes;
+    }
+
+    @Name("nqueens.Metricas")
+    @Label("Métricas da busca")
+    @Category("N Rainhas")
+    @Period("1 s")
+    public static class EventoMetricas extends Event {
+        @Label("Nós visitados")
+        public long nos;
+        @Label("Rejeições")
+        public long rejeicoes;
+        @Label("Nós por segundo")
+        public double nosPorSegundo;
+        @Label("Threads")
+        public int threads;
+    }
+}
@@ -0,0 +1,128 @@
+// Motor de busca das N Rainhas baseado em máscaras de bits (bitboard).
+// As colunas ocupadas e as duas diagonais atacadas ficam em variáveis long, então cada nó
+// da busca custa O(1) em vez do laço O(n) de posicaoSegura. As colunas livres são visitadas
+// do bit menos significativo para o mais significativo, ou seja, na mesma ordem crescente
+// da busca original, e por isso as soluções saem exatamente na mesma ordem.
+// É o motor "recursivo" de MotorBusca; o MotorIterativo faz a mesma busca com uma pilha explícita.
+public class MotorBitmask implements MotorBusca {
+    public static final int N_MAXIMO = 64; // Limite imposto pelo tamanho de um long
+
+    private final int n;
+    private final long cheio; // Máscara com as n colunas do tabuleiro
+    private final int[] rainhas;
+    private final MetricasBusca.Contadores contadores; // Só existe com -Dnqueens.metricas=true
+    private long colunasPrefixo, diag1Prefixo, diag2Prefixo; // Máscaras após posicionar o prefixo
+
+    public MotorBitmask(int n) {
+        if (n < 0 || n > N_MAXIMO) {
+            throw new IllegalArgumentException("O motor por máscaras suporta de 0 a " + N_MAXIMO + " rainhas: " + n);
+        }
+        this.n = n;
+        this.cheio = n == 64 ? -1L : (1L << n) - 1;
+        this.rainhas = new int[n];
+        this.contadores = MetricasBusca.ATIVAS ? MetricasBusca.daThreadAtual() : null;
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    // Enumera todas as soluções que começam com as 'linhas' primeiras rainhas de 'prefixo'
+    @Override
+    public void enumerar(int[] prefixo, int linhas, ReceptorSolucao receptor) {
+        if (posicionarPrefixo(prefixo, linhas)) {
+            enumerar(linhas, colunasPrefixo, diag1Prefixo, diag2Prefixo, receptor);
+        }
+    }
+
+    // Conta as soluções que começam com o prefixo dado, sem alocar nada por solução
+    @Override
+    public long contar(int[] prefixo, int linhas) {
+        if (!posicionarPrefixo(prefixo, linhas)) {
+            return 0;
+        }
+        return contar(linhas, colunasPrefixo, diag1Prefixo, diag2Prefixo);
+    }
+
+    // Enumera os prefixos válidos com 'profundidade' linhas, na ordem da busca.
+    // Só as 'profundidade' primeiras posições do vetor entregue ao receptor são válidas.
+    public void enumerarPrefixos(int profundidade, ReceptorSolucao receptor) {
+        enumerarPrefixos(0, profundidade, 0, 0, 0, receptor);
+    }
+
+    private void enumerarPrefixos(int linha, int profundidade, long colunas, long diag1, long diag2, ReceptorSolucao receptor) {
+        if (linha == profundidade) {
+            receptor.aceitar(rainhas);
+            return;
+        }
+        long livres = ~(colunas | diag1 | diag2) & cheio;
+        while (livres != 0) {
+            long bit = livres & -livres;
+            livres ^= bit;
+            rainhas[linha] = Long.numberOfTrailingZeros(bit);
+            enumerarPrefixos(linha + 1, profundidade, colunas | bit, ((diag1 | bit) << 1) & cheio, (diag2 | bit) >>> 1, receptor);
+        }
+    }
+
+    // Copia o prefixo para o tabuleiro interno e calcula as máscaras da linha seguinte
+    private boolean posicionarPrefixo(int[] prefixo, int linhas) {
+        long colunas = 0, diag1 = 0, diag2 = 0;
+        for (int linha = 0; linha < linhas; linha++) {
+            long bit = 1L << prefixo[linha];
+            if (((colunas | diag1 | diag2) & bit) != 0) {
+                return false; // Prefixo com ataque: não há soluções
+            }
+            rainhas[linha] = prefixo[linha];
+            colunas |= bit;
+            diag1 = ((diag1 | bit) << 1) & cheio;
+            diag2 = (diag2 | bit) >>> 1;
+        }
+        colunasPrefixo = colunas;
+        diag1Prefixo = diag1;
+        diag2Prefixo = diag2;
+        return true;
+    }
+
+    // Método recursivo: 'diag1' e 'diag2' já estão deslocadas para a linha atual
+    private void enumerar(int linha, long colunas, long diag1, long diag2, ReceptorSolucao receptor) {
+        if (linha == n) {
+            if (MetricasBusca.ATIVAS) {
+                contadores.solucao(n);
+            }
+            receptor.aceitar(rainhas);
+            return;
+        }
+        long livres = ~(colunas | diag1 | diag2) & cheio;
+        if (MetricasBusca.ATIVAS) {
+            contadores.visitar(linha, n, livres);
+        }
+        while (livres != 0) {
+            long bit = livres & -livres; // Coluna livre mais à esquerda
+            livres ^= bit;
+            rainhas[linha] = Long.numberOfTrailingZeros(bit);
+            enumerar(linha + 1, colunas | bit, ((diag1 | bit) << 1) & cheio, (diag2 | bit) >>> 1, receptor);
+        }
+    }
+
+    // Versão da recursão que só soma as soluções
+    private long contar(int linha, long colunas, long diag1, long diag2) {
+        if (linha == n) {
+            if (MetricasBusca.ATIVAS) {
+                contadores.solucao(n);
+            }
+            return 1;
+        }
+        long total = 0;
+        long livres = ~(colunas | diag1 | diag2) & cheio;
+        if (MetricasBusca.ATIVAS) {
+            contadores.visitar(linha, n, livres);
+        }
+        while (livres != 0) {
+            long bit = livres & -livres;
+            livres ^= bit;
+            total += contar(linha + 1, colunas | bit, ((diag1 | bit) << 1) & cheio, (diag2 | bit) >>> 1);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,68 @@
+// Motor de busca das N Rainhas: enumera ou conta as soluções que completam um prefixo, na ordem
+// da busca original. A implementação é escolhida na linha de comando de qualquer um dos programas
+// com -Dnqueens.motor=recursivo|iterativo|vetorial (padrão: recursivo), sem mudar os resultados.
+public interface MotorBusca {
+    String PADRAO = System.getProperty("nqueens.motor", "recursivo");
+
+    static MotorBusca criar(int n) {
+        return criar(n, PADRAO);
+    }
+
+    static MotorBusca criar(int n, String tipo) {
+        switch (tipo) {
+            case "recursivo":
+                return new MotorBitmask(n);
+            case "iterativo":
+                return new MotorIterativo(n);
+            case "vetorial":
+                return CargaVetorial.criar(n);
+            default:
+                throw new IllegalArgumentException("Motor desconhecido: " + tipo + " (use recursivo, iterativo ou vetorial)");
+        }
+    }
+
+    // O MotorVetorial usa o módulo incubado jdk.incubator.vector e fica fora da compilação principal
+    // (vetorial/), então é carregado por reflexão, uma vez. Sem a classe compilada, sem
+    // --add-modules jdk.incubator.vector ou sem suporte da máquina, avisa e usa o MotorIterativo.
+    final class CargaVetorial {
+        private static final java.lang.reflect.Constructor<?> CONSTRUTOR = carregar();
+
+        private CargaVetorial() {
+        }
+
+        static MotorBusca criar(int n) {
+            if (CONSTRUTOR == null) {
+                return new MotorIterativo(n);
+            }
+            try {
+                return (MotorBusca) CONSTRUTOR.newInstance(n);
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause(); // n fora do suportado, como nos outros motores
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static java.lang.reflect.Constructor<?> carregar() {
+            try {
+                java.lang.reflect.Constructor<?> construtor = Class.forName("MotorVetorial").getConstructor(int.class);
+                construtor.newInstance(8); // Inicializa a classe agora, para a falha aparecer aqui
+                return construtor;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Motor vetorial indisponível (" + (e.getCause() != null ? e.getCause() : e) + "); usando o iterativo");
+                return null;
+            }
+        }
+    }
+
+    int getN();
+
+    // Enumera todas as soluções que começam com as 'linhas' primeiras rainhas de 'prefixo'
+    void enumerar(int[] prefixo, int linhas, ReceptorSolucao receptor);
+
+    // Conta as soluções que começam com o prefixo dado, sem alocar nada por solução
+    long contar(int[] prefixo, int linhas);
+}
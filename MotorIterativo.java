@@ -0,0 +1,163 @@
+// Motor por máscaras de bits sem recursão: a pilha da busca fica em vetores primitivos alocados
+// no construtor (uma posição por linha com as colunas ocupadas, as duas diagonais e as colunas
+// livres que ainda faltam tentar), então o laço principal é um só método, sem chamadas por nó e
+// sem alocar nada. A linha atual vive em variáveis locais (registradores, depois do JIT) e só é
+// empilhada ao descer. Visita os nós na mesma ordem do MotorBitmask e entrega as mesmas soluções.
+public class MotorIterativo implements MotorBusca {
+    private final int n;
+    private final long cheio; // Máscara com as n colunas do tabuleiro
+    private final int[] rainhas;
+    private final long[] colunas; // Por linha: colunas ocupadas pelas rainhas de cima
+    private final long[] diag1;   // Por linha: diagonais já deslocadas para a linha
+    private final long[] diag2;
+    private final long[] livres;  // Por linha: colunas livres ainda não tentadas
+    private final MetricasBusca.Contadores contadores; // Só existe com -Dnqueens.metricas=true
+
+    public MotorIterativo(int n) {
+        if (n < 0 || n > MotorBitmask.N_MAXIMO) {
+            throw new IllegalArgumentException("O motor por máscaras suporta de 0 a " + MotorBitmask.N_MAXIMO + " rainhas: " + n);
+        }
+        this.n = n;
+        this.cheio = n == 64 ? -1L : (1L << n) - 1;
+        this.rainhas = new int[n];
+        this.colunas = new long[n + 1];
+        this.diag1 = new long[n + 1];
+        this.diag2 = new long[n + 1];
+        this.livres = new long[n + 1];
+        this.contadores = MetricasBusca.ATIVAS ? MetricasBusca.daThreadAtual() : null;
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    @Override
+    public void enumerar(int[] prefixo, int linhas, ReceptorSolucao receptor) {
+        if (!posicionarPrefixo(prefixo, linhas)) {
+            return;
+        }
+        if (linhas == n) {
+            if (MetricasBusca.ATIVAS) {
+                contadores.solucao(n);
+            }
+            receptor.aceitar(rainhas);
+            return;
+        }
+        // A linha atual fica em variáveis locais; os vetores só são tocados ao descer e ao voltar
+        int linha = linhas;
+        long ocupadas = colunas[linha], descendentes = diag1[linha], ascendentes = diag2[linha];
+        long candidatas = ~(ocupadas | descendentes | ascendentes) & cheio;
+        if (MetricasBusca.ATIVAS) {
+            contadores.visitar(linha, n, candidatas);
+        }
+        while (true) {
+            if (candidatas == 0) {
+                if (linha == linhas) {
+                    return;
+                }
+                linha--; // Linha esgotada: volta para a de cima
+                ocupadas = colunas[linha];
+                descendentes = diag1[linha];
+                ascendentes = diag2[linha];
+                candidatas = livres[linha];
+                continue;
+            }
+            long bit = candidatas & -candidatas; // Coluna livre mais à esquerda
+            candidatas ^= bit;
+            rainhas[linha] = Long.numberOfTrailingZeros(bit);
+            if (linha + 1 == n) {
+                if (MetricasBusca.ATIVAS) {
+                    contadores.solucao(n);
+                }
+                receptor.aceitar(rainhas);
+                continue;
+            }
+            colunas[linha] = ocupadas;
+            diag1[linha] = descendentes;
+            diag2[linha] = ascendentes;
+            livres[linha] = candidatas;
+            linha++;
+            ocupadas |= bit;
+            descendentes = ((descendentes | bit) << 1) & cheio;
+            ascendentes = (ascendentes | bit) >>> 1;
+            candidatas = ~(ocupadas | descendentes | ascendentes) & cheio;
+            if (MetricasBusca.ATIVAS) {
+                contadores.visitar(linha, n, candidatas);
+            }
+        }
+    }
+
+    @Override
+    public long contar(int[] prefixo, int linhas) {
+        if (!posicionarPrefixo(prefixo, linhas)) {
+            return 0;
+        }
+        if (linhas == n) {
+            if (MetricasBusca.ATIVAS) {
+                contadores.solucao(n);
+            }
+            return 1;
+        }
+        long total = 0;
+        int linha = linhas;
+        long ocupadas = colunas[linha], descendentes = diag1[linha], ascendentes = diag2[linha];
+        long candidatas = ~(ocupadas | descendentes | ascendentes) & cheio;
+        if (MetricasBusca.ATIVAS) {
+            contadores.visitar(linha, n, candidatas);
+        }
+        while (true) {
+            if (candidatas == 0) {
+                if (linha == linhas) {
+                    return total;
+                }
+                linha--;
+                ocupadas = colunas[linha];
+                descendentes = diag1[linha];
+                ascendentes = diag2[linha];
+                candidatas = livres[linha];
+                continue;
+            }
+            long bit = candidatas & -candidatas;
+            candidatas ^= bit;
+            if (linha + 1 == n) {
+                if (MetricasBusca.ATIVAS) {
+                    contadores.solucao(n);
+                }
+                total++;
+                continue;
+            }
+            colunas[linha] = ocupadas;
+            diag1[linha] = descendentes;
+            diag2[linha] = ascendentes;
+            livres[linha] = candidatas;
+            linha++;
+            ocupadas |= bit;
+            descendentes = ((descendentes | bit) << 1) & cheio;
+            ascendentes = (ascendentes | bit) >>> 1;
+            candidatas = ~(ocupadas | descendentes | ascendentes) & cheio;
+            if (MetricasBusca.ATIVAS) {
+                contadores.visitar(linha, n, candidatas);
+            }
+        }
+    }
+
+    // Copia o prefixo para o tabuleiro interno e empilha as máscaras da linha seguinte
+    private boolean posicionarPrefixo(int[] prefixo, int linhas) {
+        long ocupadas = 0, descendentes = 0, ascendentes = 0;
+        for (int linha = 0; linha < linhas; linha++) {
+            long bit = 1L << prefixo[linha];
+            if (((ocupadas | descendentes | ascendentes) & bit) != 0) {
+                return false; // Prefixo com ataque: não há soluções
+            }
+            rainhas[linha] = prefixo[linha];
+            ocupadas |= bit;
+            descendentes = ((descendentes | bit) << 1) & cheio;
+            ascendentes = (ascendentes | bit) >>> 1;
+        }
+        colunas[linhas] = ocupadas;
+        diag1[linhas] = descendentes;
+        diag2[linhas] = ascendentes;
+        return true;
+    }
+}
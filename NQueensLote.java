@@ -0,0 +1,307 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Execução em lote, sem Scanner nem Swing, para máquinas sem monitor e scripts.
+// Roda uma varredura de valores de n na mesma JVM (o aquecimento do JIT é pago uma vez só)
+// e escreve uma linha por execução em CSV ou JSON, com o tempo em nanossegundos.
+// Com -Dnqueens.metricas=true cada linha traz também os nós visitados e as rejeições, e o
+// resumo periódico das métricas vai para a saída de erro.
+//
+// Uso: java NQueensLote --n 4..18 [opções]
+//   --n 12 | 4..18 | 8,10,12     valores de n
+//   --solucionador sequencial | paralelo | distribuido   (padrão: sequencial)
+//   --modo contar | todas | unicas | uma                 (padrão: contar)
+//   --metodo construtivo | minconflitos   no modo "uma" (só sequencial), como a solução é obtida
+//   --threads N                  workers da busca paralela ou tarefas simultâneas do worker distribuído (padrão: processadores)
+//   --repeticoes R               execuções medidas por n (padrão: 1)
+//   --aquecimento A              execuções descartadas por n antes das medidas (padrão: 0)
+//   --formato csv | json         (padrão: csv)
+//   --saida arquivo              destino dos resultados (padrão: saída padrão)
+//   --solucoes diretorio         no modo "todas", grava solucoes-<n>.bin em vez de guardar no heap
+//   --ponto-de-controle dir      contagens paralelas retomáveis: <modo>-<n>.txt guarda as subárvores concluídas
+//   --prazo segundos             tempo máximo de cada contagem paralela; o resultado sai parcial (completa = false)
+//   --host, --porta              coordenador, no solucionador distribuído (padrão: localhost:12345)
+public class NQueensLote {
+    private static final String HOST = "localhost";
+    private static final int PORTA = 12345;
+
+    public static void main(String[] args) throws IOException {
+        String faixa = lerOpcao(args, "--n");
+        if (faixa == null) {
+            System.err.println("Uso: java NQueensLote --n 4..18 [--solucionador sequencial|paralelo|distribuido]"
+                    + " [--modo contar|todas|unicas|uma] [--metodo construtivo|minconflitos] [--threads N] [--repeticoes R] [--aquecimento A]"
+                    + " [--formato csv|json] [--saida arquivo] [--solucoes diretorio] [--ponto-de-controle dir]"
+                    + " [--prazo segundos] [--host h] [--porta p]");
+            System.exit(2);
+        }
+        Configuracao configuracao = new Configuracao();
+        configuracao.solucionador = lerOpcao(args, "--solucionador", "sequencial");
+        configuracao.modo = lerOpcao(args, "--modo", "contar");
+        configuracao.metodo = lerOpcao(args, "--metodo", "construtivo");
+        if (configuracao.modo.equals("uma") && !configuracao.solucionador.equals("sequencial")) {
+            throw new IllegalArgumentException("O modo \"uma\" só existe no solucionador sequencial");
+        }
+        configuracao.threads = lerOpcaoInteira(args, "--threads", Runtime.getRuntime().availableProcessors());
+        configuracao.host = lerOpcao(args, "--host", HOST);
+        configuracao.porta = lerOpcaoInteira(args, "--porta", PORTA);
+        String diretorio = lerOpcao(args, "--solucoes");
+        configuracao.diretorioSolucoes = diretorio == null ? null : Paths.get(diretorio);
+        if (configuracao.diretorioSolucoes != null) {
+            Files.createDirectories(configuracao.diretorioSolucoes);
+        }
+        String pontos = lerOpcao(args, "--ponto-de-controle");
+        configuracao.pontosDeControle = pontos == null ? null : Files.createDirectories(Paths.get(pontos));
+        configuracao.prazoSegundos = lerOpcaoInteira(args, "--prazo", 0);
+        int repeticoes = lerOpcaoInteira(args, "--repeticoes", 1);
+        int aquecimento = lerOpcaoInteira(args, "--aquecimento", 0);
+        boolean json = lerOpcao(args, "--formato", "csv").equals("json");
+        String saida = lerOpcao(args, "--saida");
+
+        // Só o arquivo de "--saida" é fechado no fim; System.out continua aberto
+        PrintStream destino = saida == null ? System.out
+                : new PrintStream(new FileOutputStream(saida), true, StandardCharsets.UTF_8.name());
+        try {
+            Relatorio relatorio = new Relatorio(destino, json);
+            for (int n : lerFaixa(faixa)) {
+                for (int i = 0; i < aquecimento; i++) {
+                    executar(configuracao, n);
+                }
+                for (int repeticao = 1; repeticao <= repeticoes; repeticao++) {
+                    relatorio.escrever(configuracao, n, repeticao, executar(configuracao, n));
+                }
+            }
+            relatorio.terminar();
+        } finally {
+            if (destino != System.out) {
+                destino.close();
+            }
+        }
+    }
+
+    // Uma execução: devolve {soluções, únicas, nanossegundos, nós, rejeições, completa (1 ou 0)};
+    // -1 quando o valor não é calculado
+    private static long[] executar(Configuracao configuracao, int n) throws IOException {
+        Thread relatorio = null;
+        if (MetricasBusca.ATIVAS) {
+            MetricasBusca.reiniciar();
+            relatorio = MetricasBusca.iniciarRelatorio(System.err);
+        }
+        long inicio = System.nanoTime();
+        long total = -1;
+        long unicas = -1;
+        boolean completa = true;
+        switch (configuracao.solucionador) {
+            case "sequencial":
+                if (configuracao.modo.equals("unicas")) {
+                    long[] contagens = contarUnicas(n);
+                    total = contagens[0];
+                    unicas = contagens[1];
+                } else if (configuracao.modo.equals("uma")) {
+                    total = encontrarUma(n, configuracao.metodo);
+                } else if (configuracao.modo.equals("todas")) {
+                    total = guardarTodas(n, configuracao, receptor -> MotorBusca.criar(n).enumerar(new int[n], 0, receptor));
+                } else {
+                    total = MotorBusca.criar(n).contar(new int[n], 0);
+                }
+                break;
+            case "paralelo": {
+                BuscaParalela busca = new BuscaParalela(n, configuracao.threads);
+                if (!configuracao.modo.equals("todas")) {
+                    if (configuracao.pontosDeControle != null) {
+                        busca.setPontoDeControle(configuracao.pontosDeControle.resolve(configuracao.modo + "-" + n + ".txt"));
+                    }
+                    if (configuracao.prazoSegundos > 0) {
+                        busca.setPrazo(configuracao.prazoSegundos * 1000L);
+                    }
+                }
+                if (configuracao.modo.equals("unicas")) {
+                    total = busca.buscarUnicas(false);
+                    unicas = busca.getTotalUnicas();
+                } else if (configuracao.modo.equals("todas")) {
+                    total = configuracao.diretorioSolucoes == null ? busca.enumerar().tamanho()
+                            : guardarTodas(n, configuracao, busca::enumerar);
+                } else {
+                    total = busca.contar();
+                }
+                completa = busca.isCompleta();
+                break;
+            }
+            case "distribuido": {
+                byte modo = configuracao.modo.equals("unicas") ? ProtocoloDistribuido.MODO_UNICAS
+                        : configuracao.modo.equals("todas") ? ProtocoloDistribuido.MODO_TODAS : ProtocoloDistribuido.MODO_CONTAR;
+                if (modo == ProtocoloDistribuido.MODO_TODAS && configuracao.diretorioSolucoes != null) {
+                    // Guarda a parte deste worker (ou o resultado inteiro, se vier do cache do coordenador),
+                    // fora da ordem da busca quando mais de uma tarefa roda ao mesmo tempo
+                    try (ArquivoSolucoes.Escritor escritor = ArquivoSolucoes.criar(arquivoSolucoes(configuracao, n), n)) {
+                        // O total é o do trabalho inteiro, não o da parte gravada aqui
+                        total = ClienteDistribuidoNQueens.participar(configuracao.host, configuracao.porta, n, modo, escritor, configuracao.threads).total;
+                    }
+                } else {
+                    long resultado = ClienteDistribuidoNQueens.participar(configuracao.host, configuracao.porta, n, modo, null, configuracao.threads).total;
+                    if (modo == ProtocoloDistribuido.MODO_UNICAS) {
+                        unicas = resultado;
+                    } else {
+                        total = resultado;
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Solucionador desconhecido: " + configuracao.solucionador);
+        }
+        long nanos = System.nanoTime() - inicio;
+        if (!MetricasBusca.ATIVAS) {
+            return new long[] {total, unicas, nanos, -1, -1, completa ? 1 : 0};
+        }
+        relatorio.interrupt();
+        MetricasBusca.Instantaneo metricas = MetricasBusca.instantaneo();
+        return new long[] {total, unicas, nanos, metricas.totalNos(), metricas.totalRejeicoes(), completa ? 1 : 0};
+    }
+
+    // Busca completa em que cada solução é guardada: no disco, se houver diretório, senão no heap
+    private static long guardarTodas(int n, Configuracao configuracao, Busca busca) throws IOException {
+        if (configuracao.diretorioSolucoes == null) {
+            ArmazemSolucoes armazem = new ArmazemSolucoes(n);
+            busca.executar(armazem);
+            return armazem.tamanho();
+        }
+        try (ArquivoSolucoes.Escritor escritor = ArquivoSolucoes.criar(arquivoSolucoes(configuracao, n), n)) {
+            busca.executar(escritor);
+            return escritor.getQuantidade();
+        }
+    }
+
+    private static Path arquivoSolucoes(Configuracao configuracao, int n) {
+        return configuracao.diretorioSolucoes.resolve("solucoes-" + n + ".bin");
+    }
+
+    // Uma solução qualquer, conferida em O(n) dentro do tempo medido: 1 se existe, 0 para n = 2 e 3
+    private static long encontrarUma(int n, String metodo) {
+        int[] rainhas = metodo.equals("minconflitos") ? SolucaoUnica.minimosConflitos(n, n) : SolucaoUnica.construir(n);
+        if (rainhas == null) {
+            return 0;
+        }
+        int atacada = SolucaoUnica.verificar(rainhas);
+        if (atacada >= 0) {
+            throw new IllegalStateException("Solução inválida para " + n + " rainhas: a rainha da linha " + atacada + " está sob ataque");
+        }
+        return 1;
+    }
+
+    // Total e únicas da busca sequencial, verificando cada solução contra as suas simetrias
+    private static long[] contarUnicas(int n) {
+        int[] inversa = new int[n];
+        long[] contagens = new long[2];
+        MotorBusca.criar(n).enumerar(new int[n], 0, solucao -> {
+            contagens[0]++;
+            if (Simetria.classeSeCanonica(solucao, inversa) != 0) {
+                contagens[1]++;
+            }
+        });
+        return contagens;
+    }
+
+    // "12", "4..18" ou "8,10,12" (as formas podem ser combinadas: "4..8,10,12")
+    private static List<Integer> lerFaixa(String faixa) {
+        List<Integer> valores = new ArrayList<>();
+        for (String parte : faixa.split(",")) {
+            int separador = parte.indexOf("..");
+            if (separador < 0) {
+                valores.add(Integer.parseInt(parte.trim()));
+            } else {
+                int inicio = Integer.parseInt(parte.substring(0, separador).trim());
+                int fim = Integer.parseInt(parte.substring(separador + 2).trim());
+                for (int n = inicio; n <= fim; n++) {
+                    valores.add(n);
+                }
+            }
+        }
+        return valores;
+    }
+
+    // Lê o valor que segue uma opção da linha de comando, como "--modo todas"
+    private static String lerOpcao(String[] args, String opcao) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(opcao)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    private static String lerOpcao(String[] args, String opcao, String padrao) {
+        String valor = lerOpcao(args, opcao);
+        return valor == null ? padrao : valor;
+    }
+
+    // Lê o valor inteiro que segue uma opção da linha de comando, como "--threads 8"
+    private static int lerOpcaoInteira(String[] args, String opcao, int padrao) {
+        String valor = lerOpcao(args, opcao);
+        return valor == null ? padrao : Integer.parseInt(valor);
+    }
+
+    private static class Configuracao {
+        String solucionador;
+        String modo;
+        String metodo;
+        int threads;
+        String host;
+        int porta;
+        Path diretorioSolucoes;
+        Path pontosDeControle;
+        int prazoSegundos;
+    }
+
+    // Uma busca que entrega cada solução ao receptor
+    private interface Busca {
+        void executar(ReceptorSolucao receptor) throws IOException;
+    }
+
+    // Escreve as linhas de resultado à medida que cada execução termina
+    private static class Relatorio {
+        private final PrintStream destino;
+        private final boolean json;
+        private boolean primeira = true;
+
+        Relatorio(PrintStream destino, boolean json) {
+            this.destino = destino;
+            this.json = json;
+            if (json) {
+                destino.println("[");
+            } else {
+                destino.println("solucionador,modo,n,threads,repeticao,solucoes,unicas,nanos,nos,rejeicoes,completa");
+            }
+        }
+
+        void escrever(Configuracao configuracao, int n, int repeticao, long[] medida) {
+            int threads = configuracao.solucionador.equals("sequencial") ? 1 : configuracao.threads;
+            if (json) {
+                destino.print(primeira ? "" : ",\n");
+                destino.printf(Locale.ROOT, "  {\"solucionador\": \"%s\", \"modo\": \"%s\", \"n\": %d, \"threads\": %d, \"repeticao\": %d,"
+                                + " \"solucoes\": %s, \"unicas\": %s, \"nanos\": %d, \"nos\": %s, \"rejeicoes\": %s, \"completa\": %b}",
+                        configuracao.solucionador, configuracao.modo, n, threads, repeticao,
+                        valor(medida[0], "null"), valor(medida[1], "null"), medida[2], valor(medida[3], "null"), valor(medida[4], "null"), medida[5] == 1);
+            } else {
+                destino.printf(Locale.ROOT, "%s,%s,%d,%d,%d,%s,%s,%d,%s,%s,%b%n", configuracao.solucionador, configuracao.modo, n, threads,
+                        repeticao, valor(medida[0], ""), valor(medida[1], ""), medida[2], valor(medida[3], ""), valor(medida[4], ""), medida[5] == 1);
+            }
+            destino.flush();
+            primeira = false;
+        }
+
+        void terminar() {
+            if (json) {
+                destino.println(primeira ? "]" : "\n]");
+            }
+            destino.flush();
+        }
+
+        private static String valor(long valor, String ausente) {
+            return valor < 0 ? ausente : Long.toString(valor);
+        }
+    }
+}
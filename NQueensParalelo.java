@@ -2,103 +2,159 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
 public class NQueensParalelo {
-    private static int indiceAtual = 0;
-    private static List<int[]> solucoes;
+    private static long indiceAtual = 0;
+    private static FonteSolucoes solucoes;
+    private static List<Simetria.SolucaoCanonica> unicas; // Representantes guardadas no modo "--unicas"
     private static JFrame janela;
-    private static JPanel painelTabuleiro;
+    private static PainelTabuleiro painelTabuleiro;
     private static int n;
-
-    public static void main(String[] args) throws InterruptedException {
+    private static boolean apenasContar; // Modo "--contar": só soma as soluções, sem guardá-las
+    private static boolean apenasUnicas; // Modo "--unicas": só busca uma solução por classe de simetria
+    private static int paralelismo; // Número de workers do ForkJoinPool ("--threads")
+    private static Path arquivo; // Opção "--arquivo": grava as soluções em disco em vez de guardá-las no heap
+    private static Path pontosDeControle; // Opção "--ponto-de-controle": diretório onde as contagens são retomáveis
+    private static int prazoSegundos; // Opção "--prazo": tempo máximo de uma contagem, que fica parcial e retomável
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        apenasContar = Arrays.asList(args).contains("--contar");
+        apenasUnicas = Arrays.asList(args).contains("--unicas");
+        paralelismo = lerOpcaoInteira(args, "--threads", Runtime.getRuntime().availableProcessors());
+        String caminho = lerOpcao(args, "--arquivo");
+        arquivo = caminho == null ? null : Paths.get(caminho);
+        String diretorio = lerOpcao(args, "--ponto-de-controle");
+        pontosDeControle = diretorio == null ? null : Files.createDirectories(Paths.get(diretorio));
+        prazoSegundos = lerOpcaoInteira(args, "--prazo", 0);
         iniciarSimulacao();
     }
 
+    // Lê o valor que segue uma opção da linha de comando, como "--arquivo solucoes.bin"
+    private static String lerOpcao(String[] args, String opcao) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(opcao)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    // Lê o valor inteiro que segue uma opção da linha de comando, como "--threads 8"
+    private static int lerOpcaoInteira(String[] args, String opcao, int padrao) {
+        String valor = lerOpcao(args, opcao);
+        return valor == null ? padrao : Integer.parseInt(valor);
+    }
+
+    // Contagens com "--ponto-de-controle" retomam as subárvores já feitas; com "--prazo" param a tempo
+    private static void configurarRetomada(BuscaParalela busca, String modo) {
+        if (pontosDeControle != null) {
+            busca.setPontoDeControle(pontosDeControle.resolve(modo + "-" + n + ".txt"));
+        }
+        if (prazoSegundos > 0) {
+            busca.setPrazo(prazoSegundos * 1000L);
+        }
+    }
+
     // Método para iniciar a simulação
-    private static void iniciarSimulacao() throws InterruptedException {
+    private static void iniciarSimulacao() throws InterruptedException, IOException {
         // Solicita ao usuário o número de rainhas
         Scanner scanner = new Scanner(System.in);
         System.out.print("Digite o número de rainhas: ");
         n = scanner.nextInt();
 
         long inicioTempo = System.nanoTime();
-
-        solucoes = new ArrayList<>();
-        List<Thread> threads = new ArrayList<>();
-
-        // Cria threads para resolver o problema paralelamente
-        for (int i = 0; i < n; i++) {
-            int[] rainhas = new int[n];
-            int coluna = i;
-            Thread thread = new Thread(() -> {
-                rainhas[0] = coluna;
-                resolverNQueens(rainhas, 1, n);
-            });
-            threads.add(thread);
-            thread.start();
+        Thread relatorio = null;
+        if (MetricasBusca.ATIVAS) {
+            MetricasBusca.reiniciar();
+            relatorio = MetricasBusca.iniciarRelatorio(System.out); // Resumo periódico enquanto a busca roda
         }
 
-        // Aguarda todas as threads terminarem
-        for (Thread thread : threads) {
-            thread.join();
+        // Contando ou buscando só as únicas, o espelho dispensa a metade direita da primeira linha
+        fecharArquivoAnterior();
+        BuscaParalela busca = new BuscaParalela(n, paralelismo);
+        if (apenasContar) {
+            configurarRetomada(busca, apenasUnicas ? "unicas" : "contar");
+        }
+        long total;
+        long totalUnicas = 0;
+        if (apenasUnicas) {
+            solucoes = null;
+            total = busca.buscarUnicas(!apenasContar);
+            totalUnicas = busca.getTotalUnicas();
+            unicas = apenasContar ? null : busca.getUnicas(); // O conjunto completo só é montado se for exibido
+        } else if (apenasContar) {
+            solucoes = null;
+            total = busca.contar();
+        } else if (arquivo != null) {
+            // Os prefixos concluídos vão para o disco em ordem durante a busca
+            try (ArquivoSolucoes.Escritor escritor = ArquivoSolucoes.criar(arquivo, n)) {
+                busca.enumerar(escritor);
+            }
+            solucoes = ArquivoSolucoes.abrir(arquivo);
+            total = solucoes.tamanho();
+        } else {
+            solucoes = busca.enumerar();
+            total = solucoes.tamanho();
         }
 
         long fimTempo = System.nanoTime();
         long duracao = (fimTempo - inicioTempo) / 1_000_000_000; // Tempo em segundos
 
-        System.out.println("Número total de soluções: " + solucoes.size());
+        if (apenasUnicas) {
+            System.out.println("Número de soluções únicas: " + totalUnicas);
+        }
+        System.out.println("Número total de soluções: " + total);
         System.out.println("Tempo de execução (s): " + duracao);
+        System.out.printf("Tarefas: %d prefixos de %d linhas em %d threads, desequilíbrio de carga: %.1f%%%n",
+                busca.getNumeroTarefas(), busca.getProfundidade(), busca.getParalelismo(), busca.getDesequilibrio() * 100);
+        if (MetricasBusca.ATIVAS) {
+            relatorio.interrupt();
+            MetricasBusca.instantaneo().imprimir(System.out, n);
+        }
+        if (!busca.isCompleta()) {
+            System.out.printf("Prazo esgotado: contagem parcial de %d das %d subárvores%s%n", busca.getTarefasConcluidas(),
+                    busca.getNumeroTarefas(), pontosDeControle == null ? "" : "; rode de novo com o mesmo --ponto-de-controle para continuar");
+        }
 
         try {
             // Lança exceção se não houverem soluções possíveis
-            if (solucoes.isEmpty()) {
+            if (total == 0 && busca.isCompleta()) {
                 throw new ExcecaoSemSolucao("Nenhuma solução possível encontrada para " + n + " rainhas.");
             }
 
-            // Exibe a interface gráfica com as soluções encontradas
-            SwingUtilities.invokeLater(() -> criarInterfaceGrafica());
+            if (apenasContar) {
+                perguntarNovaSimulacao(); // Sem soluções guardadas não há tabuleiro para exibir
+            } else {
+                // Exibe a interface gráfica com as soluções encontradas
+                SwingUtilities.invokeLater(() -> criarInterfaceGrafica());
+            }
         } catch (ExcecaoSemSolucao e) {
             JOptionPane.showMessageDialog(null, e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
             perguntarNovaSimulacao();
         }
     }
 
-    // Método sincronizado para adicionar uma solução encontrada
-    private static synchronized void adicionarSolucao(int[] rainhas) {
-        solucoes.add(rainhas.clone());
-    }
-
-    // Método recursivo para resolver o problema das N Rainhas
-    private static void resolverNQueens(int[] rainhas, int linha, int n) {
-        if (linha == rainhas.length) {
-            adicionarSolucao(rainhas);
-        } else {
-            for (int coluna = 0; coluna < n; coluna++) {
-                if (posicaoSegura(rainhas, linha, coluna)) {
-                    rainhas[linha] = coluna;
-                    resolverNQueens(rainhas, linha + 1, n); // Recursão para a próxima linha
-                }
-            }
+    // Fecha o arquivo mapeado da simulação anterior, se houver
+    private static void fecharArquivoAnterior() throws IOException {
+        if (solucoes instanceof ArquivoSolucoes) {
+            ((ArquivoSolucoes) solucoes).close();
         }
     }
 
-    // Verifica se a posição atual é segura (não há ataques)
-    private static boolean posicaoSegura(int[] rainhas, int linha, int coluna) {
-        for (int i = 0; i < linha; i++) {
-            if (rainhas[i] == coluna || Math.abs(rainhas[i] - coluna) == Math.abs(i - linha)) {
-                return false; // Há ataque de outra rainha
-            }
-        }
-        return true; // Posição segura
-    }
-
     // Cria a interface gráfica para exibir as soluções
     private static void criarInterfaceGrafica() {
+        if (solucoes == null) {
+            solucoes = Simetria.expandirTodas(n, unicas); // Reconstrói o conjunto completo só quando é exibido
+        }
+        indiceAtual = 0;
         janela = new JFrame("Solução N Rainhas");
-        janela.setSize(n * 50, n * 50 + 50);
         janela.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 
         janela.addWindowListener(new WindowAdapter() {
@@ -108,57 +164,33 @@ public class NQueensParalelo {
             }
         });
 
-        painelTabuleiro = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                desenharTabuleiro(g, solucoes.get(indiceAtual)); // Desenha a solução atual
-            }
-        };
-
-        painelTabuleiro.setPreferredSize(new Dimension(n * 50, n * 50));
+        // Casas ajustadas ao tamanho da janela, desenhadas uma vez; a cada solução só as rainhas mudam
+        painelTabuleiro = new PainelTabuleiro(solucoes);
         janela.add(painelTabuleiro, BorderLayout.CENTER);
 
         JPanel painelControle = new JPanel();
         JButton botaoVoltar = new JButton("Voltar");
         JButton botaoProximo = new JButton("Próximo");
+        JButton botaoMiniaturas = new JButton("Miniaturas");
 
         botaoVoltar.addActionListener(e -> mostrarSolucao(indiceAtual - 1));
         botaoProximo.addActionListener(e -> mostrarSolucao(indiceAtual + 1));
+        botaoMiniaturas.addActionListener(e -> GradeMiniaturas.abrirJanela(janela, solucoes, NQueensParalelo::mostrarSolucao));
 
         painelControle.add(botaoVoltar);
         painelControle.add(botaoProximo);
+        painelControle.add(botaoMiniaturas);
         janela.add(painelControle, BorderLayout.SOUTH);
 
+        janela.pack();
         janela.setVisible(true);
     }
 
-    // Desenha o tabuleiro de xadrez e as rainhas na solução atual
-    private static void desenharTabuleiro(Graphics g, int[] rainhas) {
-        for (int linha = 0; linha < n; linha++) {
-            for (int coluna = 0; coluna < n; coluna++) {
-                if ((linha + coluna) % 2 == 0) {
-                    g.setColor(Color.WHITE);
-                } else {
-                    g.setColor(Color.GRAY);
-                }
-                g.fillRect(coluna * 50, linha * 50, 50, 50);
-            }
-        }
-
-        // Desenha as rainhas
-        g.setColor(Color.RED);
-        for (int linha = 0; linha < n; linha++) {
-            int coluna = rainhas[linha];
-            g.fillOval(coluna * 50 + 10, linha * 50 + 10, 30, 30);
-        }
-    }
-
     // Exibe a solução na posição do índice fornecido
-    private static void mostrarSolucao(int indice) {
-        if (indice >= 0 && indice < solucoes.size()) {
+    private static void mostrarSolucao(long indice) {
+        if (indice >= 0 && indice < solucoes.tamanho()) {
             indiceAtual = indice;
-            painelTabuleiro.repaint();
+            painelTabuleiro.mostrar(indiceAtual);
         }
     }
 
@@ -168,7 +200,7 @@ public class NQueensParalelo {
         if (resposta == JOptionPane.YES_OPTION) {
             try {
                 iniciarSimulacao();
-            } catch (InterruptedException e) {
+            } catch (InterruptedException | IOException e) {
                 e.printStackTrace();
             }
         } else {
@@ -2,81 +2,187 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class NQueensSequencial {
-    private static int indiceAtual = 0;
-    private static List<int[]> solucoes;
+    private static long indiceAtual = 0;
+    private static FonteSolucoes solucoes;
     private static JFrame janela;
-    private static JPanel painelTabuleiro;
+    private static PainelTabuleiro painelTabuleiro;
     private static int n;
+    private static boolean apenasContar; // Modo "--contar": só soma as soluções, sem guardá-las
+    private static Path arquivo; // Opção "--arquivo": grava as soluções em disco em vez de guardá-las no heap
+    private static boolean apenasUma; // Modo "--uma": uma única solução, sem busca, para n muito grande
+    private static String metodo; // Opção "--metodo construtivo|minconflitos" do modo "--uma"
+    private static Path diretorioIndice; // Opção "--indice": acesso direto às soluções por um índice em disco, sem enumerá-las
+    private static JLabel rotuloIndice;
+    private static JTextField campoIndice;
+    private static final int LIMITE_TABULEIRO = 4096; // Maior n cuja solução única ainda é desenhada (as casas já têm menos de um pixel)
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        apenasContar = Arrays.asList(args).contains("--contar");
+        apenasUma = Arrays.asList(args).contains("--uma");
+        metodo = lerOpcao(args, "--metodo");
+        if (metodo == null) {
+            metodo = "construtivo";
+        }
+        String caminho = lerOpcao(args, "--arquivo");
+        arquivo = caminho == null ? null : Paths.get(caminho);
+        String indice = lerOpcao(args, "--indice");
+        diretorioIndice = indice == null ? null : Paths.get(indice);
         iniciarSimulacao();
     }
 
+    // Lê o valor que segue uma opção da linha de comando, como "--arquivo solucoes.bin"
+    private static String lerOpcao(String[] args, String opcao) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(opcao)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
     // Método para iniciar a simulação
-    private static void iniciarSimulacao() {
+    private static void iniciarSimulacao() throws IOException {
         // Solicita ao usuário o número de rainhas
         Scanner scanner = new Scanner(System.in);
         System.out.print("Digite o número de rainhas: ");
         n = scanner.nextInt();
+        if (apenasUma) {
+            encontrarUma();
+            return;
+        }
 
         long inicioTempo = System.nanoTime();
+        Thread relatorio = null;
+        if (MetricasBusca.ATIVAS) {
+            MetricasBusca.reiniciar();
+            relatorio = MetricasBusca.iniciarRelatorio(System.out); // Resumo periódico enquanto a busca roda
+        }
 
-        solucoes = new ArrayList<>();
-        resolverNQueens(new int[n], 0, solucoes);
+        fecharArquivoAnterior();
+        long total;
+        if (apenasContar) {
+            solucoes = null;
+            total = contarNQueens(new int[n], 0);
+        } else if (diretorioIndice != null) {
+            // Só as contagens das subárvores ficam na memória: cada solução é achada quando exibida
+            IndiceSolucoes indice = IndiceSolucoes.carregar(diretorioIndice, n, Runtime.getRuntime().availableProcessors());
+            solucoes = indice;
+            total = indice.tamanho();
+        } else if (arquivo != null) {
+            // As soluções vão para o disco durante a busca e a interface lê o arquivo mapeado
+            try (ArquivoSolucoes.Escritor escritor = ArquivoSolucoes.criar(arquivo, n)) {
+                resolverNQueens(new int[n], 0, escritor);
+            }
+            solucoes = ArquivoSolucoes.abrir(arquivo);
+            total = solucoes.tamanho();
+        } else {
+            ArmazemSolucoes armazem = new ArmazemSolucoes(n);
+            resolverNQueens(new int[n], 0, armazem);
+            solucoes = armazem;
+            total = armazem.tamanho();
+        }
 
         long fimTempo = System.nanoTime();
         long duracao = (fimTempo - inicioTempo) / 1_000_000_000; // Tempo em segundos
 
-        System.out.println("Número total de soluções: " + solucoes.size());
+        System.out.println("Número total de soluções: " + total);
         System.out.println("Tempo de execução (s): " + duracao);
+        if (MetricasBusca.ATIVAS) {
+            relatorio.interrupt();
+            MetricasBusca.instantaneo().imprimir(System.out, n);
+        }
 
         try {
             // Lança exceção se não houverem soluções possíveis
-            if (solucoes.isEmpty()) {
+            if (total == 0) {
                 throw new ExcecaoSemSolucao("Nenhuma solução possível encontrada para " + n + " rainhas.");
             }
 
-            // Exibe a interface gráfica com as soluções encontradas
-            SwingUtilities.invokeLater(() -> criarInterfaceGrafica());
+            if (apenasContar) {
+                perguntarNovaSimulacao(); // Sem soluções guardadas não há tabuleiro para exibir
+            } else {
+                // Exibe a interface gráfica com as soluções encontradas
+                SwingUtilities.invokeLater(() -> criarInterfaceGrafica());
+            }
         } catch (ExcecaoSemSolucao e) {
             JOptionPane.showMessageDialog(null, e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
             perguntarNovaSimulacao();
         }
     }
 
-    // Método recursivo para resolver o problema das N Rainhas
-    private static void resolverNQueens(int[] rainhas, int linha, List<int[]> solucoes) {
-        if (linha == rainhas.length) {
-            solucoes.add(rainhas.clone()); // Adiciona a solução encontrada
-        } else {
-            for (int coluna = 0; coluna < rainhas.length; coluna++) {
-                if (posicaoSegura(rainhas, linha, coluna)) {
-                    rainhas[linha] = coluna;
-                    resolverNQueens(rainhas, linha + 1, solucoes); // Recursão para a próxima linha
+    // Modo "--uma": uma solução qualquer, construída em O(n) ou achada por mínimos conflitos, e
+    // conferida em O(n). Acima de LIMITE_TABULEIRO não abre a janela: só imprime as primeiras colunas.
+    private static void encontrarUma() throws IOException {
+        long inicio = System.nanoTime();
+        int[] rainhas = metodo.equals("minconflitos") ? SolucaoUnica.minimosConflitos(n, System.nanoTime()) : SolucaoUnica.construir(n);
+        long encontrada = System.nanoTime();
+        try {
+            if (rainhas == null) {
+                throw new ExcecaoSemSolucao("Nenhuma solução possível encontrada para " + n + " rainhas.");
+            }
+            int atacada = SolucaoUnica.verificar(rainhas);
+            long verificada = System.nanoTime();
+            if (atacada >= 0) {
+                throw new IllegalStateException("Solução inválida: a rainha da linha " + atacada + " está sob ataque");
+            }
+            System.out.printf("Solução para %d rainhas (%s) encontrada em %d ms e verificada em %d ms%n",
+                    n, metodo, (encontrada - inicio) / 1_000_000, (verificada - encontrada) / 1_000_000);
+
+            fecharArquivoAnterior();
+            if (arquivo != null) {
+                try (ArquivoSolucoes.Escritor escritor = ArquivoSolucoes.criar(arquivo, n)) {
+                    escritor.aceitar(rainhas);
                 }
+                System.out.println("Solução gravada em " + arquivo);
+            }
+            if (diretorioIndice != null && n <= MotorBitmask.N_MAXIMO) {
+                long posicao = IndiceSolucoes.carregar(diretorioIndice, n, Runtime.getRuntime().availableProcessors()).posicao(rainhas);
+                System.out.println("Posição da solução na ordem da busca: " + posicao);
             }
+            if (n > LIMITE_TABULEIRO) {
+                System.out.println("Colunas das primeiras linhas: " + Arrays.toString(Arrays.copyOf(rainhas, 16)).replace("]", ", ...]"));
+                perguntarNovaSimulacao(); // Tabuleiro grande demais para a janela
+                return;
+            }
+            ArmazemSolucoes armazem = new ArmazemSolucoes(n);
+            armazem.aceitar(rainhas);
+            solucoes = armazem;
+            SwingUtilities.invokeLater(() -> criarInterfaceGrafica());
+        } catch (ExcecaoSemSolucao e) {
+            JOptionPane.showMessageDialog(null, e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+            perguntarNovaSimulacao();
         }
     }
 
-    // Verifica se a posição atual é segura (não há ataques)
-    private static boolean posicaoSegura(int[] rainhas, int linha, int coluna) {
-        for (int i = 0; i < linha; i++) {
-            if (rainhas[i] == coluna || Math.abs(rainhas[i] - coluna) == Math.abs(i - linha)) {
-                return false; // Há ataque de outra rainha
-            }
+    // Resolve o problema das N Rainhas a partir das 'linha' primeiras rainhas já posicionadas
+    private static void resolverNQueens(int[] rainhas, int linha, ReceptorSolucao solucoes) {
+        MotorBusca motor = MotorBusca.criar(rainhas.length);
+        motor.enumerar(rainhas, linha, solucoes); // O armazém (ou o arquivo) empacota cada solução encontrada
+    }
+
+    // Fecha o arquivo mapeado da simulação anterior, se houver
+    private static void fecharArquivoAnterior() throws IOException {
+        if (solucoes instanceof ArquivoSolucoes) {
+            ((ArquivoSolucoes) solucoes).close();
         }
-        return true; // Posição segura
+    }
+
+    // Conta as soluções a partir das 'linha' primeiras rainhas, sem alocar nada por solução
+    private static long contarNQueens(int[] rainhas, int linha) {
+        return MotorBusca.criar(rainhas.length).contar(rainhas, linha);
     }
 
     // Cria a interface gráfica para exibir as soluções
     private static void criarInterfaceGrafica() {
+        indiceAtual = 0;
         janela = new JFrame("Solução N Rainhas");
-        janela.setSize(n * 50, n * 50 + 50);
         janela.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 
         janela.addWindowListener(new WindowAdapter() {
@@ -86,65 +192,72 @@ public class NQueensSequencial {
             }
         });
 
-        painelTabuleiro = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                desenharTabuleiro(g, solucoes.get(indiceAtual)); // Desenha a solução atual
-            }
-        };
-
-        painelTabuleiro.setPreferredSize(new Dimension(n * 50, n * 50));
+        // Casas ajustadas ao tamanho da janela, desenhadas uma vez; a cada solução só as rainhas mudam
+        painelTabuleiro = new PainelTabuleiro(solucoes);
         janela.add(painelTabuleiro, BorderLayout.CENTER);
 
         JPanel painelControle = new JPanel();
         JButton botaoVoltar = new JButton("Voltar");
         JButton botaoProximo = new JButton("Próximo");
+        JButton botaoMiniaturas = new JButton("Miniaturas");
+        rotuloIndice = new JLabel();
+        campoIndice = new JTextField(10);
+        JButton botaoIr = new JButton("Ir");
 
         botaoVoltar.addActionListener(e -> mostrarSolucao(indiceAtual - 1));
         botaoProximo.addActionListener(e -> mostrarSolucao(indiceAtual + 1));
+        botaoMiniaturas.addActionListener(e -> GradeMiniaturas.abrirJanela(janela, solucoes, NQueensSequencial::mostrarSolucao));
+        botaoIr.addActionListener(e -> irParaIndice());
+        campoIndice.addActionListener(e -> irParaIndice()); // Enter no campo
 
         painelControle.add(botaoVoltar);
         painelControle.add(botaoProximo);
+        painelControle.add(botaoMiniaturas);
+        painelControle.add(rotuloIndice);
+        painelControle.add(campoIndice);
+        painelControle.add(botaoIr);
         janela.add(painelControle, BorderLayout.SOUTH);
+        atualizarRotulo();
 
+        janela.pack();
         janela.setVisible(true);
     }
 
-    // Desenha o tabuleiro de xadrez e as rainhas na solução atual
-    private static void desenharTabuleiro(Graphics g, int[] rainhas) {
-        for (int linha = 0; linha < n; linha++) {
-            for (int coluna = 0; coluna < n; coluna++) {
-                if ((linha + coluna) % 2 == 0) {
-                    g.setColor(Color.WHITE);
-                } else {
-                    g.setColor(Color.GRAY);
-                }
-                g.fillRect(coluna * 50, linha * 50, 50, 50);
-            }
+    // Exibe a solução na posição do índice fornecido
+    private static void mostrarSolucao(long indice) {
+        if (indice >= 0 && indice < solucoes.tamanho()) {
+            indiceAtual = indice;
+            atualizarRotulo();
+            painelTabuleiro.mostrar(indiceAtual);
         }
+    }
 
-        // Desenha as rainhas
-        g.setColor(Color.RED);
-        for (int linha = 0; linha < n; linha++) {
-            int coluna = rainhas[linha];
-            g.fillOval(coluna * 50 + 10, linha * 50 + 10, 30, 30);
+    // Salta para o índice digitado (a partir de 0); com o índice em disco, sem enumerar até ele
+    private static void irParaIndice() {
+        try {
+            long indice = Long.parseLong(campoIndice.getText().trim());
+            if (indice < 0 || indice >= solucoes.tamanho()) {
+                throw new NumberFormatException();
+            }
+            mostrarSolucao(indice);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(janela, "Digite um índice de 0 a " + (solucoes.tamanho() - 1) + ".", "Erro", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    // Exibe a solução na posição do índice fornecido
-    private static void mostrarSolucao(int indice) {
-        if (indice >= 0 && indice < solucoes.size()) {
-            indiceAtual = indice;
-            painelTabuleiro.repaint();
-        }
+    private static void atualizarRotulo() {
+        rotuloIndice.setText("Solução " + indiceAtual + " de 0.." + (solucoes.tamanho() - 1) + "  Ir para:");
     }
 
     // Pergunta ao usuário se ele deseja fazer outra simulação
     private static void perguntarNovaSimulacao() {
         int resposta = JOptionPane.showConfirmDialog(null, "Deseja fazer outra simulação?", "Nova Simulação", JOptionPane.YES_NO_OPTION);
         if (resposta == JOptionPane.YES_OPTION) {
-            iniciarSimulacao();
+            try {
+                iniciarSimulacao();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         } else {
             System.exit(0);
         }
@@ -0,0 +1,111 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+// Tabuleiro de uma solução, ajustado ao tamanho do painel. As casas são desenhadas uma vez numa
+// imagem guardada, refeita só quando o tamanho muda; cada repintura copia a imagem e desenha por
+// cima só as n rainhas. Trocar de solução custa O(n), e não O(n²), mesmo com n na casa dos milhares.
+public class PainelTabuleiro extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final int CELULA_PREFERIDA = 50; // Lado da casa quando o tabuleiro cabe na tela
+    private static final int BRANCO = 0xFFFFFF;
+    private static final int CINZA = 0x808080;
+    private static final int MEDIA = 0xC0C0C0; // Cor das casas menores que 2 pixels, que não dá para distinguir
+
+    private final FonteSolucoes solucoes;
+    private final int n;
+    private final int[] rainhas;
+    private long indice;
+    private BufferedImage casas;
+
+    public PainelTabuleiro(FonteSolucoes solucoes) {
+        this.solucoes = solucoes;
+        this.n = solucoes.getN();
+        this.rainhas = new int[n];
+        int lado = ladoInicial(n);
+        setPreferredSize(new Dimension(lado, lado));
+    }
+
+    // n * 50 pixels, limitado a 80% da menor dimensão da tela
+    public static int ladoInicial(int n) {
+        int tela = 1000;
+        if (!GraphicsEnvironment.isHeadless()) {
+            Dimension dimensao = Toolkit.getDefaultToolkit().getScreenSize();
+            tela = Math.min(dimensao.width, dimensao.height);
+        }
+        return (int) Math.min((long) n * CELULA_PREFERIDA, tela * 4 / 5);
+    }
+
+    // Passa a exibir a solução de número 'indice' da fonte
+    public void mostrar(long indice) {
+        this.indice = indice;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int lado = Math.min(getWidth(), getHeight());
+        if (lado <= 0) {
+            return;
+        }
+        if (casas == null || casas.getWidth() != lado) {
+            casas = desenharCasas(n, lado);
+        }
+        int x = (getWidth() - lado) / 2;
+        int y = (getHeight() - lado) / 2;
+        g.drawImage(casas, x, y, null);
+        solucoes.obter(indice, rainhas);
+        desenharRainhas(g, rainhas, x, y, lado);
+    }
+
+    // Casas de um tabuleiro n x n com 'lado' pixels, escritas direto nos pixels da imagem.
+    // A casa c ocupa os pixels [borda(c), borda(c + 1)), com borda(c) = c * lado / n.
+    static BufferedImage desenharCasas(int n, int lado) {
+        BufferedImage imagem = new BufferedImage(lado, lado, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) imagem.getRaster().getDataBuffer()).getData();
+        if (lado < 2 * n) {
+            Arrays.fill(pixels, MEDIA);
+            return imagem;
+        }
+        int[] paridade = new int[lado]; // Paridade da casa que contém cada pixel
+        for (int p = 0; p < lado; p++) {
+            paridade[p] = (int) (((long) (p + 1) * n + lado - 1) / lado - 1) & 1;
+        }
+        for (int y = 0; y < lado; y++) {
+            int base = y * lado;
+            for (int x = 0; x < lado; x++) {
+                pixels[base + x] = (paridade[y] ^ paridade[x]) == 0 ? BRANCO : CINZA;
+            }
+        }
+        return imagem;
+    }
+
+    // Rainhas de uma solução sobre um tabuleiro de 'lado' pixels com o canto em (x, y): um círculo
+    // por casa quando há espaço para ele, senão a casa inteira (com pelo menos um pixel)
+    static void desenharRainhas(Graphics g, int[] rainhas, int x, int y, int lado) {
+        int n = rainhas.length;
+        g.setColor(Color.RED);
+        boolean circulos = lado >= 5 * n;
+        for (int linha = 0; linha < n; linha++) {
+            int coluna = rainhas[linha];
+            int esquerda = borda(coluna, n, lado);
+            int topo = borda(linha, n, lado);
+            int largura = Math.max(1, borda(coluna + 1, n, lado) - esquerda);
+            int altura = Math.max(1, borda(linha + 1, n, lado) - topo);
+            if (circulos) {
+                int margemX = largura / 5;
+                int margemY = altura / 5;
+                g.fillOval(x + esquerda + margemX, y + topo + margemY, largura - 2 * margemX, altura - 2 * margemY);
+            } else {
+                g.fillRect(x + esquerda, y + topo, largura, altura);
+            }
+        }
+    }
+
+    private static int borda(int casa, int n, int lado) {
+        return (int) ((long) casa * lado / n);
+    }
+}
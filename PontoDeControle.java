@@ -0,0 +1,175 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+// Ponto de controle de uma contagem longa: quais subárvores de prefixo já foram concluídas e
+// quanto cada uma contou. É um arquivo de texto pequeno, só de acréscimos:
+//
+//   nqueens-ponto-de-controle 1
+//   n 18 modo contar profundidade 4 tarefas 1646
+//   <índice> <contagem> <únicas>      (uma linha por subárvore concluída)
+//
+// As linhas vão para o disco (com fsync) no máximo a cada INTERVALO_NANOS, e sempre no close().
+// Se o processo morrer no meio de uma escrita, o que vem depois do último '\n' é ignorado na
+// leitura e cortado do arquivo antes de voltar a gravar. O BufferedWriter também descarrega
+// sozinho a cada 8 KiB e pode partir uma linha no meio de um número, então só o terminador
+// garante que a linha chegou inteira. No pior caso perde-se o trabalho dos últimos segundos,
+// que é refeito ao retomar.
+public class PontoDeControle implements Closeable {
+    private static final String MAGICO = "nqueens-ponto-de-controle 1";
+    private static final long INTERVALO_NANOS = 5_000_000_000L;
+
+    private final Path arquivo;
+    private final int n;
+    private final String modo;
+    private int profundidade; // 0 enquanto o arquivo ainda não existe
+    private int tarefas;
+    private boolean[] concluidas;
+    private long[] contagens;
+    private long[] unicas;
+    private long bytesValidos; // Tamanho do arquivo até o fim da última linha completa
+    private FileOutputStream saida;
+    private Writer escrita;
+    private long ultimaGravacao;
+
+    private PontoDeControle(Path arquivo, int n, String modo) {
+        this.arquivo = arquivo;
+        this.n = n;
+        this.modo = modo;
+    }
+
+    // Lê o ponto de controle, se existir. Falha se ele for de outro n ou outro modo.
+    public static PontoDeControle abrir(Path arquivo, int n, String modo) throws IOException {
+        PontoDeControle ponto = new PontoDeControle(arquivo, n, modo);
+        if (Files.exists(arquivo)) {
+            ponto.ler();
+        }
+        return ponto;
+    }
+
+    private void ler() throws IOException {
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        int fim = conteudo.length;
+        while (fim > 0 && conteudo[fim - 1] != '\n') {
+            fim--; // Linha cortada por uma queda no meio da escrita
+        }
+        bytesValidos = fim;
+        List<String> linhas = Arrays.asList(new String(conteudo, 0, fim, StandardCharsets.UTF_8).split("\n"));
+        if (linhas.size() < 2 || !linhas.get(0).equals(MAGICO)) {
+            throw new IOException(arquivo + " não é um ponto de controle N Rainhas");
+        }
+        String[] cabecalho = linhas.get(1).split(" ");
+        if (cabecalho.length != 8 || Integer.parseInt(cabecalho[1]) != n || !cabecalho[3].equals(modo)) {
+            throw new IOException("O ponto de controle " + arquivo + " é de outra busca: " + linhas.get(1));
+        }
+        profundidade = Integer.parseInt(cabecalho[5]);
+        alocar(Integer.parseInt(cabecalho[7]));
+        for (int i = 2; i < linhas.size(); i++) {
+            String[] campos = linhas.get(i).trim().split(" ");
+            if (campos.length != 3) {
+                continue; // Linha que não é de subárvore (não deveria existir, mas não vale a busca toda)
+            }
+            try {
+                int indice = Integer.parseInt(campos[0]);
+                concluidas[indice] = true;
+                contagens[indice] = Long.parseLong(campos[1]);
+                unicas[indice] = Long.parseLong(campos[2]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                // Mesmo caso
+            }
+        }
+    }
+
+    private void alocar(int tarefas) {
+        this.tarefas = tarefas;
+        this.concluidas = new boolean[tarefas];
+        this.contagens = new long[tarefas];
+        this.unicas = new long[tarefas];
+    }
+
+    // Profundidade dos prefixos já usada por este ponto de controle, ou 0 se ele é novo
+    public int getProfundidade() {
+        return profundidade;
+    }
+
+    // Começa (ou continua) a gravar; os prefixos têm que ser os mesmos da execução anterior
+    public void iniciar(int profundidade, int tarefas) throws IOException {
+        boolean novo = this.profundidade == 0;
+        if (novo) {
+            this.profundidade = profundidade;
+            alocar(tarefas);
+        } else if (this.profundidade != profundidade || this.tarefas != tarefas) {
+            throw new IOException("O ponto de controle " + arquivo + " tem " + this.tarefas + " tarefas de "
+                    + this.profundidade + " linhas, não " + tarefas + " de " + profundidade);
+        }
+        saida = new FileOutputStream(arquivo.toFile(), !novo);
+        if (!novo) {
+            saida.getChannel().truncate(bytesValidos); // Sem isso, a próxima linha se juntaria ao pedaço cortado
+        }
+        escrita = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        if (novo) {
+            escrita.write(MAGICO + "\n");
+            escrita.write("n " + n + " modo " + modo + " profundidade " + profundidade + " tarefas " + tarefas + "\n");
+            gravar();
+        }
+        ultimaGravacao = System.nanoTime();
+    }
+
+    public boolean concluida(int indice) {
+        return concluidas[indice];
+    }
+
+    public long contagem(int indice) {
+        return contagens[indice];
+    }
+
+    public long unicas(int indice) {
+        return unicas[indice];
+    }
+
+    public synchronized int getTarefasConcluidas() {
+        int total = 0;
+        for (boolean concluida : concluidas) {
+            if (concluida) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // Registra uma subárvore concluída; grava no disco se o último fsync foi há mais de INTERVALO_NANOS
+    public synchronized void registrar(int indice, long contagem, long unicasDaTarefa) {
+        concluidas[indice] = true;
+        contagens[indice] = contagem;
+        unicas[indice] = unicasDaTarefa;
+        try {
+            escrita.write(indice + " " + contagem + " " + unicasDaTarefa + "\n");
+            if (System.nanoTime() - ultimaGravacao > INTERVALO_NANOS) {
+                gravar();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void gravar() throws IOException {
+        escrita.flush();
+        saida.getFD().sync();
+        ultimaGravacao = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (escrita != null) {
+            try {
+                gravar();
+            } finally {
+                escrita.close();
+                escrita = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Protocolo binário entre o coordenador (ServidorDistribuidoNQueens) e os workers
+// (ClienteDistribuidoNQueens). Cada quadro é [tipo: 1 byte][tamanho da carga: int][carga].
+// O worker pede um trabalho, recebe tarefas com prefixos das primeiras linhas e, enquanto a
+// busca de cada tarefa ainda roda, envia as soluções em lotes de registros empacotados
+// (o mesmo registro do arquivo de soluções); a tarefa termina com o quadro RESULTADO.
+// Se o resultado pedido já está no cache do coordenador, ele não distribui tarefas: no modo
+// MODO_TODAS envia as soluções guardadas em quadros LOTE com índice -1, e então o FIM.
+// Enquanto resolve uma tarefa, o worker manda um BATIMENTO a cada INTERVALO_BATIMENTO_MS; o
+// coordenador considera perdida a tarefa de um worker que passa o prazo do arrendamento calado.
+// Um worker multithread informa no PEDIDO quantas tarefas resolve ao mesmo tempo; o coordenador
+// mantém até esse número de tarefas com ele, e os quadros de todas elas dividem a mesma conexão.
+// Uma conexão que começa com CONSULTAS, em vez de PEDIDO, é de consultas de completamento
+// (ConsultaCompletamento): cada quadro CONSULTAS leva um lote de tabuleiros com rainhas já
+// fixadas e o coordenador responde com um quadro RESPOSTAS, na mesma ordem, até a conexão fechar.
+public class ProtocoloDistribuido {
+    public static final byte PEDIDO = 1;    // Worker -> coordenador: n (int), modo (byte), paralelismo (int, opcional; 1 se ausente)
+    public static final byte TAREFA = 2;    // Coordenador -> worker: índice (int), prefixo (1 byte por linha)
+    public static final byte LOTE = 3;      // Worker -> coordenador (ou do cache ao worker): índice (int), registros empacotados
+    public static final byte RESULTADO = 4; // Worker -> coordenador: índice (int), contagem (long)
+    public static final byte FIM = 5;       // Coordenador -> worker: total de soluções (long)
+    public static final byte BATIMENTO = 6; // Worker -> coordenador: índice (int) da tarefa que segue em andamento
+    public static final byte CONSULTAS = 7; // Cliente -> coordenador: modo (byte), n (int), quantidade (int), tabuleiros (n bytes cada; LINHA_LIVRE nas linhas sem rainha)
+    public static final byte RESPOSTAS = 8; // Coordenador -> cliente: por consulta, contagem (long), latência em ns (long) e, no MODO_PRIMEIRA, a solução (n bytes; LINHA_LIVRE se não há)
+
+    public static final byte MODO_TODAS = 0;
+    public static final byte MODO_CONTAR = 1;
+    public static final byte MODO_UNICAS = 2; // Conta uma solução por classe de simetria
+    public static final byte MODO_PRIMEIRA = 3; // Consultas: a primeira solução (na ordem da busca) que completa o tabuleiro
+
+    public static final int LINHA_LIVRE = 0xFF; // Linha sem rainha fixada num tabuleiro de consulta
+    public static final int MAX_CONSULTAS_POR_LOTE = 512; // Com n <= 64, o lote e a resposta cabem em CARGA_MAXIMA (conferido em lerTabuleiros)
+
+    public static final int TAMANHO_LOTE = 64 << 10; // Bytes de registros por lote
+    public static final int INTERVALO_BATIMENTO_MS = 5000; // Intervalo entre batimentos de um worker ocupado
+    private static final int CARGA_MAXIMA = TAMANHO_LOTE + 1024; // Limite de sanidade para quadros recebidos
+
+    private ProtocoloDistribuido() {
+    }
+
+    // Quadro recebido; a carga é lida com os getters de ByteBuffer (big-endian)
+    public static class Quadro {
+        public final byte tipo;
+        public final ByteBuffer carga;
+
+        Quadro(byte tipo, ByteBuffer carga) {
+            this.tipo = tipo;
+            this.carga = carga;
+        }
+    }
+
+    public static Quadro ler(DataInputStream entrada) throws IOException {
+        byte tipo = entrada.readByte();
+        int tamanho = entrada.readInt();
+        if (tamanho < 0 || tamanho > CARGA_MAXIMA) {
+            throw new IOException("Quadro do tipo " + tipo + " com tamanho inválido: " + tamanho);
+        }
+        byte[] carga = new byte[tamanho];
+        entrada.readFully(carga);
+        return new Quadro(tipo, ByteBuffer.wrap(carga));
+    }
+
+    // Lê o próximo quadro e falha se ele não for do tipo esperado
+    public static Quadro ler(DataInputStream entrada, byte tipoEsperado) throws IOException {
+        Quadro quadro = ler(entrada);
+        if (quadro.tipo != tipoEsperado) {
+            throw new IOException("Esperado quadro do tipo " + tipoEsperado + ", recebido " + quadro.tipo);
+        }
+        return quadro;
+    }
+
+    public static void enviarPedido(DataOutputStream saida, int n, byte modo) throws IOException {
+        enviarPedido(saida, n, modo, 1);
+    }
+
+    // Pedido de um worker que resolve até 'paralelismo' tarefas ao mesmo tempo
+    public static void enviarPedido(DataOutputStream saida, int n, byte modo, int paralelismo) throws IOException {
+        synchronized (saida) {
+            saida.writeByte(PEDIDO);
+            saida.writeInt(9);
+            saida.writeInt(n);
+            saida.writeByte(modo);
+            saida.writeInt(paralelismo);
+            saida.flush();
+        }
+    }
+
+    public static void enviarTarefa(DataOutputStream saida, int indice, int[] prefixo) throws IOException {
+        synchronized (saida) {
+            saida.writeByte(TAREFA);
+            saida.writeInt(4 + prefixo.length);
+            saida.writeInt(indice);
+            for (int coluna : prefixo) {
+                saida.writeByte(coluna);
+            }
+            saida.flush();
+        }
+    }
+
+    public static void enviarLote(DataOutputStream saida, int indice, byte[] registros, int tamanho) throws IOException {
+        synchronized (saida) {
+            saida.writeByte(LOTE);
+            saida.writeInt(4 + tamanho);
+            saida.writeInt(indice);
+            saida.write(registros, 0, tamanho);
+            saida.flush();
+        }
+    }
+
+    public static void enviarResultado(DataOutputStream saida, int indice, long contagem) throws IOException {
+        synchronized (saida) {
+            saida.writeByte(RESULTADO);
+            saida.writeInt(12);
+            saida.writeInt(indice);
+            saida.writeLong(contagem);
+            saida.flush();
+        }
+    }
+
+    public static void enviarBatimento(DataOutputStream saida, int indice) throws IOException {
+        synchronized (saida) {
+            saida.writeByte(BATIMENTO);
+            saida.writeInt(4);
+            saida.writeInt(indice);
+            saida.flush();
+        }
+    }
+
+    public static void enviarFim(DataOutputStream saida, long total) throws IOException {
+        synchronized (saida) {
+            saida.writeByte(FIM);
+            saida.writeInt(8);
+            saida.writeLong(total);
+            saida.flush();
+        }
+    }
+
+    // Lote de consultas: tabuleiros[inicio..fim), cada um com -1 nas linhas livres
+    public static void enviarConsultas(DataOutputStream saida, byte modo, int n, List<int[]> tabuleiros, int inicio, int fim) throws IOException {
+        synchronized (saida) {
+            saida.writeByte(CONSULTAS);
+            saida.writeInt(9 + (fim - inicio) * n);
+            saida.writeByte(modo);
+            saida.writeInt(n);
+            saida.writeInt(fim - inicio);
+            for (int i = inicio; i < fim; i++) {
+                for (int coluna : tabuleiros.get(i)) {
+                    saida.writeByte(coluna < 0 ? LINHA_LIVRE : coluna);
+                }
+            }
+            saida.flush();
+        }
+    }
+
+    // Tabuleiros de uma carga de CONSULTAS já posicionada depois do modo e de n. Com n de 1 a 64
+    // e até MAX_CONSULTAS_POR_LOTE tabuleiros, o lote e a resposta cabem em CARGA_MAXIMA.
+    public static List<int[]> lerTabuleiros(ByteBuffer carga, int n) throws IOException {
+        if (n < 1 || n > MotorBitmask.N_MAXIMO) {
+            throw new IOException("Consultas de " + n + " rainhas não são suportadas");
+        }
+        int quantidade = carga.getInt();
+        if (quantidade < 0 || quantidade > MAX_CONSULTAS_POR_LOTE) {
+            throw new IOException("Lote de " + quantidade + " consultas; o máximo é " + MAX_CONSULTAS_POR_LOTE);
+        }
+        if ((long) quantidade * n != carga.remaining()) {
+            throw new IOException("Lote de consultas com " + quantidade + " tabuleiros e " + carga.remaining() + " bytes");
+        }
+        List<int[]> tabuleiros = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            int[] tabuleiro = new int[n];
+            for (int linha = 0; linha < n; linha++) {
+                int coluna = carga.get() & 0xFF;
+                tabuleiro[linha] = coluna == LINHA_LIVRE ? -1 : coluna;
+            }
+            tabuleiros.add(tabuleiro);
+        }
+        return tabuleiros;
+    }
+
+    public static void enviarRespostas(DataOutputStream saida, byte modo, int n, ConsultaCompletamento.Resultado[] resultados) throws IOException {
+        int porResposta = 16 + (modo == MODO_PRIMEIRA ? n : 0);
+        synchronized (saida) {
+            saida.writeByte(RESPOSTAS);
+            saida.writeInt(resultados.length * porResposta);
+            for (ConsultaCompletamento.Resultado resultado : resultados) {
+                saida.writeLong(resultado.contagem);
+                saida.writeLong(resultado.nanos);
+                if (modo == MODO_PRIMEIRA) {
+                    for (int linha = 0; linha < n; linha++) {
+                        saida.writeByte(resultado.solucao == null ? LINHA_LIVRE : resultado.solucao[linha]);
+                    }
+                }
+            }
+            saida.flush();
+        }
+    }
+
+    public static ConsultaCompletamento.Resultado[] lerRespostas(ByteBuffer carga, byte modo, int n) throws IOException {
+        int porResposta = 16 + (modo == MODO_PRIMEIRA ? n : 0);
+        if (carga.remaining() % porResposta != 0) {
+            throw new IOException("Resposta de consultas com tamanho inválido: " + carga.remaining());
+        }
+        ConsultaCompletamento.Resultado[] resultados = new ConsultaCompletamento.Resultado[carga.remaining() / porResposta];
+        for (int i = 0; i < resultados.length; i++) {
+            long contagem = carga.getLong();
+            long nanos = carga.getLong();
+            int[] solucao = null;
+            if (modo == MODO_PRIMEIRA) {
+                solucao = new int[n];
+                for (int linha = 0; linha < n; linha++) {
+                    solucao[linha] = carga.get() & 0xFF;
+                }
+                if (contagem == 0) {
+                    solucao = null;
+                }
+            }
+            resultados[i] = new ConsultaCompletamento.Resultado(contagem, solucao, nanos);
+        }
+        return resultados;
+    }
+
+    // Prefixo de uma carga de TAREFA já posicionada depois do índice
+    public static int[] lerPrefixo(ByteBuffer carga) {
+        int[] prefixo = new int[carga.remaining()];
+        for (int linha = 0; linha < prefixo.length; linha++) {
+            prefixo[linha] = carga.get() & 0xFF;
+        }
+        return prefixo;
+    }
+
+    // Empacota as soluções de uma tarefa e as envia em lotes à medida que a busca as encontra.
+    // Nenhuma solução fica guardada além do lote atual; o TCP segura o worker se o coordenador atrasar.
+    // Vários emissores podem dividir a mesma saída (uma tarefa por thread): cada quadro é escrito inteiro.
+    public static class EmissorLotes implements ReceptorSolucao {
+        private final DataOutputStream saida;
+        private final int n;
+        private final int indice;
+        private final ArquivoSolucoes.Escritor copia;
+        private final int bytesPorSolucao;
+        private final byte[] lote;
+        private int usado;
+        private long contagem;
+
+        public EmissorLotes(DataOutputStream saida, int n, int indice) {
+            this(saida, n, indice, null);
+        }
+
+        // Cada lote enviado também é acrescentado a 'copia' (se não for null), que pode ser
+        // compartilhada com os emissores de outras threads; nesse caso os lotes das tarefas se
+        // intercalam na cópia, cada um inteiro, e ela deixa de seguir a ordem da busca
+        public EmissorLotes(DataOutputStream saida, int n, int indice, ArquivoSolucoes.Escritor copia) {
+            this.saida = saida;
+            this.n = n;
+            this.indice = indice;
+            this.copia = copia;
+            this.bytesPorSolucao = CodificacaoSolucoes.bytesPorSolucao(n);
+            this.lote = new byte[Math.max(1, TAMANHO_LOTE / Math.max(1, bytesPorSolucao)) * bytesPorSolucao];
+        }
+
+        @Override
+        public void aceitar(int[] rainhas) {
+            if (usado + bytesPorSolucao > lote.length) {
+                enviarLoteAtual();
+            }
+            CodificacaoSolucoes.empacotar(rainhas, n, lote, usado);
+            usado += bytesPorSolucao;
+            contagem++;
+        }
+
+        // Envia o que restou no lote e o quadro de resultado da tarefa
+        public void terminar() throws IOException {
+            if (usado > 0) {
+                enviarLote(saida, indice, lote, usado);
+                copiar();
+                usado = 0;
+            }
+            enviarResultado(saida, indice, contagem);
+        }
+
+        public long getContagem() {
+            return contagem;
+        }
+
+        private void enviarLoteAtual() {
+            try {
+                enviarLote(saida, indice, lote, usado);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            copiar();
+            usado = 0;
+        }
+
+        private void copiar() {
+            if (copia != null) {
+                synchronized (copia) {
+                    copia.aceitarRegistros(lote, 0, usado);
+                }
+            }
+        }
+    }
+}
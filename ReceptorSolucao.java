@@ -0,0 +1,6 @@
+// Recebe cada solução encontrada pelos motores de busca.
+// O vetor recebido é reutilizado pelo motor: quem precisar guardá-lo deve fazer uma cópia.
+@FunctionalInterface
+public interface ReceptorSolucao {
+    void aceitar(int[] rainhas);
+}
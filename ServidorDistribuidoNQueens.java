@@ -1,48 +1,706 @@
 import java.io.*;
+import java.lang.reflect.Method;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ServidorDistribuidoNQueens {
 
-    private static final int PORTA = 12345; //Define o numero da porta utilizada 
-    private static List<int[]> solucoes = new ArrayList<>(); //Instancia o vetor de soluções
+    private static final int PORTA = 12345; //Define o numero da porta utilizada
+    private static final int TAREFAS_MINIMAS = 256; //Quantidade mínima de prefixos em que a busca é dividida
+    private static final int MAX_CONEXOES_VIRTUAIS = 16384; //Conexões simultâneas quando cada uma roda numa thread virtual
+    private static final int MAX_CONEXOES_PLATAFORMA = 512; //Conexões simultâneas no pool de threads de plataforma
+    private static final int FILA_ACCEPT = 1024; //Conexões que o sistema segura enquanto o limite está cheio
+    private static final int MAX_BYTES_ADIANTADOS = 256 << 20; //Bytes de lotes fora de ordem guardados em memória, somando todos os trabalhos
+    private static final String DIRETORIO_CACHE = "cache-nqueens"; //Diretório padrão dos resultados guardados
+    private static final int LIMITE_CACHE_MB = 1024; //Tamanho máximo padrão do cache em disco
+    private static final int PRAZO_ARRENDAMENTO_S = 30; //Silêncio máximo de um worker antes de a tarefa dele ir para outro
+    private static final int MAX_TAREFAS_POR_CONEXAO = 1024; //Tarefas simultâneas que um worker multithread pode pedir
+    private static final int ESPERA_MAXIMA_ADIANTADOS_MS = 5000; //Espera por espaço no buffer de lotes fora de ordem antes de ir para o disco
+    private static int prazoArrendamentoMs = PRAZO_ARRENDAMENTO_S * 1000;
+    private static CacheResultados cache; //Resultados concluídos, por n e modo
+    private static Map<String, Trabalho> trabalhos = new HashMap<>(); //Trabalhos em andamento, por n e modo
+    private static final Semaphore bytesAdiantados = new Semaphore(MAX_BYTES_ADIANTADOS);
+    private static final AtomicInteger conexoesAtivas = new AtomicInteger();
+    private static final AtomicInteger picoConexoes = new AtomicInteger();
+    // Pool compartilhado pelas consultas de completamento de todas as conexões: um lote grande
+    // não ganha mais threads que os processadores, e lotes de conexões diferentes se intercalam
+    private static final ExecutorService poolConsultas = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), tarefa -> {
+        Thread thread = new Thread(tarefa, "consultas");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public static void main(String[] args) throws IOException {
-        ServerSocket servidorSocket = new ServerSocket(PORTA);
+        String diretorio = lerOpcao(args, "--cache");
+        configurarCache(Paths.get(diretorio == null ? DIRETORIO_CACHE : diretorio),
+                (long) lerOpcaoInteira(args, "--cache-max-mb", LIMITE_CACHE_MB) << 20);
+        configurarArrendamento(lerOpcaoInteira(args, "--prazo-arrendamento", PRAZO_ARRENDAMENTO_S));
+        ServerSocket servidorSocket = new ServerSocket(PORTA, FILA_ACCEPT);
         System.out.println("Servidor iniciado na porta " + PORTA);
+        atender(servidorSocket);
+    }
+
+    // Lê o valor que segue uma opção da linha de comando, como "--cache resultados"
+    private static String lerOpcao(String[] args, String opcao) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(opcao)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    // Lê o valor inteiro que segue uma opção da linha de comando, como "--cache-max-mb 512"
+    private static int lerOpcaoInteira(String[] args, String opcao, int padrao) {
+        String valor = lerOpcao(args, opcao);
+        return valor == null ? padrao : Integer.parseInt(valor);
+    }
+
+    // Abre (ou cria) o cache de resultados; chamado antes de atender conexões
+    static synchronized void configurarCache(Path diretorio, long limiteBytes) throws IOException {
+        cache = new CacheResultados(diretorio, limiteBytes);
+        System.out.printf("Cache de resultados em %s (%.1f de %d MiB usados)%n", diretorio,
+                cache.getBytesUsados() / (double) (1 << 20), limiteBytes >> 20);
+    }
+
+    // Prazo em segundos que um worker pode ficar sem mandar nada (lote, batimento ou resultado)
+    // antes de perder a tarefa; deve ficar bem acima de ProtocoloDistribuido.INTERVALO_BATIMENTO_MS
+    static void configurarArrendamento(int segundos) {
+        if (segundos * 1000L <= ProtocoloDistribuido.INTERVALO_BATIMENTO_MS) {
+            throw new IllegalArgumentException("Prazo de arrendamento de " + segundos + " s não passa do intervalo entre batimentos");
+        }
+        prazoArrendamentoMs = segundos * 1000;
+    }
+
+    // Aguarda conexões de workers e distribui as tarefas entre eles, até o socket ser fechado.
+    // Acima do limite de conexões o accept espera, e os novos workers ficam na fila do sistema.
+    static void atender(ServerSocket servidorSocket) throws IOException {
+        boolean virtuais = threadsVirtuaisDisponiveis();
+        int maxConexoes = virtuais ? MAX_CONEXOES_VIRTUAIS : MAX_CONEXOES_PLATAFORMA;
+        ExecutorService executor = criarExecutor(virtuais, maxConexoes);
+        Semaphore vagas = new Semaphore(maxConexoes);
+        System.out.println("Conexões atendidas por threads " + (virtuais ? "virtuais" : "de plataforma") + ", até " + maxConexoes + " simultâneas");
+        try {
+            while (true) {
+                vagas.acquireUninterruptibly();
+                Socket clienteSocket;
+                try {
+                    clienteSocket = servidorSocket.accept();
+                } catch (IOException e) {
+                    vagas.release();
+                    throw e;
+                }
+                clienteSocket.setTcpNoDelay(true); // Tarefas e resultados são mensagens curtas de ida e volta
+                executor.execute(new ManipuladorCliente(clienteSocket, vagas));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static boolean threadsVirtuaisDisponiveis() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // Threads virtuais (Java 21+) são obtidas por reflexão para o servidor continuar compilando e rodando
+    // no Java 17; sem elas, um pool fixo de threads de plataforma do tamanho do limite de conexões
+    private static ExecutorService criarExecutor(boolean virtuais, int maxConexoes) {
+        if (virtuais) {
+            try {
+                Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) fabrica.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Presente mas desabilitado (prévia do Java 19/20): cai no pool de plataforma
+            }
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConexoes, maxConexoes, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), tarefa -> {
+                    Thread thread = new Thread(tarefa, "manipulador-cliente");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    static int getConexoesAtivas() {
+        return conexoesAtivas.get();
+    }
+
+    static int getPicoConexoes() {
+        return picoConexoes.get();
+    }
+
+    static String nomeModo(byte modo) {
+        switch (modo) {
+            case ProtocoloDistribuido.MODO_CONTAR:
+                return "contar";
+            case ProtocoloDistribuido.MODO_UNICAS:
+                return "unicas";
+            case ProtocoloDistribuido.MODO_TODAS:
+                return "todas";
+            default:
+                throw new IllegalArgumentException("Modo " + modo + " não é atendido pelo servidor");
+        }
+    }
+
+    // Resultado pronto no cache: o total e, no modo "todas", o arquivo de soluções já aberto
+    // (aberto aqui, sob o lock, para que uma remoção do cache não o apague antes da leitura)
+    static class RespostaEmCache {
+        final long total;
+        final FileChannel arquivo;
+
+        RespostaEmCache(long total, FileChannel arquivo) {
+            this.total = total;
+            this.arquivo = arquivo;
+        }
+    }
+
+    private static synchronized RespostaEmCache consultarCache(int n, byte modo) throws IOException {
+        if (modo == ProtocoloDistribuido.MODO_TODAS) {
+            Path arquivo = cache.solucoes(n);
+            return arquivo == null ? null : new RespostaEmCache(cache.contagem(n, "todas"), FileChannel.open(arquivo, StandardOpenOption.READ));
+        }
+        Long total = cache.contagem(n, nomeModo(modo));
+        if (total == null && modo == ProtocoloDistribuido.MODO_CONTAR) {
+            total = cache.contagem(n, "todas"); // A busca completa também conta as soluções
+        }
+        return total == null ? null : new RespostaEmCache(total, null);
+    }
+
+    // Devolve o trabalho em andamento de n rainhas no modo pedido, criando-o no primeiro pedido.
+    // Devolve null se, enquanto isso, o resultado já tiver entrado no cache.
+    private static synchronized Trabalho obterTrabalho(int n, byte modo) throws IOException {
+        String chave = CacheResultados.chave(n, nomeModo(modo));
+        Trabalho trabalho = trabalhos.get(chave);
+        if (trabalho == null) {
+            if (consultarCache(n, modo) != null) {
+                return null;
+            }
+            trabalho = new Trabalho(n, modo, chave);
+            if (trabalho.emAndamento()) { // Sem tarefas (n = 2, 3) ele já nasce concluído e no cache
+                trabalhos.put(chave, trabalho);
+            }
+        }
+        return trabalho;
+    }
+
+    // Passa o resultado de um trabalho concluído para o cache; daqui em diante os pedidos são respondidos por ele
+    private static synchronized void registrarResultado(Trabalho trabalho, long total, Path arquivoParcial) throws IOException {
+        trabalhos.remove(trabalho.chave);
+        cache.guardar(trabalho.n, nomeModo(trabalho.modo), total, arquivoParcial);
+    }
+
+    // Esquece os resultados concluídos, para que o próximo pedido refaça a busca (usado pelo BenchmarkServidor)
+    static synchronized void descartarTrabalhos() throws IOException {
+        cache.esvaziar();
+        picoConexoes.set(conexoesAtivas.get());
+    }
+
+    // Tentativa de resolver uma tarefa, arrendada a uma conexão. Só os lotes e o resultado da
+    // tentativa atual de cada tarefa valem; os de uma tentativa devolvida são descartados.
+    static class Arrendamento {
+        final int indice;
+        final int tentativa;
+
+        Arrendamento(int indice, int tentativa) {
+            this.indice = indice;
+            this.tentativa = tentativa;
+        }
+    }
+
+    // Busca de n rainhas dividida em tarefas, uma por prefixo das primeiras linhas.
+    // As tarefas são entregues a qualquer worker conectado. Os lotes da tarefa que é a próxima
+    // na ordem da busca vão direto para o arquivo; os das demais esperam em buffers até chegar
+    // a vez delas, então o arquivo final tem a mesma ordem da busca sequencial.
+    // Cada tarefa tem seu próprio monitor para os lotes, então workers em tarefas diferentes não
+    // disputam lock nenhum ao receber; o monitor do trabalho só é usado para arrendar e concluir.
+    // Se o worker de uma tarefa cai ou passa do prazo calado, a tentativa é devolvida: o que ela
+    // deixou no buffer ou no arquivo é descartado e a tarefa volta à frente da fila para outro worker.
+    static class Trabalho {
+        private final int n;
+        private final byte modo;
+        private final String chave;
+        private final List<int[]> prefixos = new ArrayList<>();
+        private final Deque<Integer> pendentes = new ArrayDeque<>();
+        private final boolean[] concluidas;
+        private final int[] tentativas;
+        private final EstadoTarefa[] estados;
+        private final Path arquivo;
+        private final ArquivoSolucoes.Escritor escritor;
+        private final LongAdder bytesRecebidos = new LongAdder();
+        private int proximaNoArquivo;
+        private int restantes;
+        private long total;
+
+        Trabalho(int n, byte modo, String chave) throws IOException {
+            this.n = n;
+            this.modo = modo;
+            this.chave = chave;
+            int profundidade = 0;
+            while (profundidade < n && prefixos.size() < TAREFAS_MINIMAS) {
+                profundidade++;
+                prefixos.clear();
+                int linhas = profundidade;
+                new MotorBitmask(n).enumerarPrefixos(linhas, prefixo -> prefixos.add(Arrays.copyOf(prefixo, linhas)));
+            }
+            if (prefixos.isEmpty() && n == 0) {
+                prefixos.add(new int[0]);
+            }
+            for (int i = 0; i < prefixos.size(); i++) {
+                pendentes.add(i);
+            }
+            this.concluidas = new boolean[prefixos.size()];
+            this.tentativas = new int[prefixos.size()];
+            this.estados = new EstadoTarefa[prefixos.size()];
+            for (int i = 0; i < estados.length; i++) {
+                estados[i] = new EstadoTarefa();
+            }
+            if (estados.length > 0) {
+                estados[0].direto = true;
+            }
+            this.restantes = prefixos.size();
+            this.arquivo = modo == ProtocoloDistribuido.MODO_TODAS ? cache.arquivoParcial(n) : null;
+            this.escritor = arquivo == null ? null : ArquivoSolucoes.criar(arquivo, n);
+            System.out.println("Trabalho para " + n + " rainhas dividido em " + prefixos.size() + " tarefas de " + profundidade + " linhas");
+            if (restantes == 0) {
+                synchronized (this) {
+                    finalizar();
+                }
+            }
+        }
+
+        synchronized boolean emAndamento() {
+            return restantes > 0;
+        }
+
+        // Arrenda a próxima tarefa pendente. Se todas já estão com algum worker, espera até uma ser
+        // devolvida ou o trabalho terminar; devolve null quando não resta nenhuma tarefa.
+        synchronized Arrendamento arrendar() throws InterruptedException {
+            while (pendentes.isEmpty() && restantes > 0) {
+                wait();
+            }
+            return tentarArrendar();
+        }
+
+        // Arrenda a próxima tarefa pendente sem esperar; null se nenhuma está na fila agora
+        synchronized Arrendamento tentarArrendar() {
+            Integer indice = pendentes.poll();
+            if (indice == null) {
+                return null;
+            }
+            Arrendamento arrendamento = new Arrendamento(indice, ++tentativas[indice]);
+            synchronized (estados[indice]) {
+                estados[indice].dono = arrendamento;
+            }
+            return arrendamento;
+        }
+
+        // Devolve a tarefa de uma tentativa que não vai terminar (worker perdido). Descarta os lotes
+        // que ela deixou no buffer ou, se já era a vez dela, no fim do arquivo.
+        synchronized void devolver(Arrendamento arrendamento) throws IOException {
+            EstadoTarefa estado = estados[arrendamento.indice];
+            synchronized (estado) {
+                if (estado.concluida || estado.dono != arrendamento) {
+                    return;
+                }
+                estado.dono = null;
+                if (estado.adiantados != null) {
+                    estado.adiantados = null;
+                    bytesAdiantados.release(estado.reservados);
+                    estado.reservados = 0;
+                }
+                descartarTransbordo(estado);
+                if (estado.direto && escritor != null) {
+                    synchronized (escritor) {
+                        escritor.descartarDesde(estado.inicioNoArquivo);
+                    }
+                }
+            }
+            pendentes.addFirst(arrendamento.indice); // As tarefas seguintes podem estar esperando a vez dela no arquivo
+            notifyAll();
+        }
+
+        int[] prefixo(int indice) {
+            return prefixos.get(indice);
+        }
+
+        // Recebe um lote de registros empacotados de uma tarefa em andamento. Lotes fora de ordem
+        // reservam espaço no limite global de bytes adiantados; sem espaço, a thread espera, para
+        // de ler o socket e o TCP segura o worker. A tarefa da vez nunca espera, então sempre anda.
+        // Um worker com várias tarefas na mesma conexão não pode esperar ('podeEsperar' falso):
+        // parar de ler o socket também pararia a tarefa da vez, se ela for uma delas. Os lotes
+        // dele que não cabem no limite vão para um arquivo de transbordo da tarefa, no disco.
+        // Quem pode esperar também vai para o transbordo se a tarefa da vez voltou para a fila sem
+        // ninguém para arrendá-la (todos os workers parados aqui) ou se a espera passa do limite.
+        // Lotes de outra tentativa que não a atual da tarefa são ignorados.
+        void receberLote(Arrendamento arrendamento, byte[] registros, int inicio, int tamanho, boolean podeEsperar)
+                throws InterruptedException, IOException {
+            if (escritor == null) {
+                return;
+            }
+            int bytesPorSolucao = CodificacaoSolucoes.bytesPorSolucao(n);
+            if (bytesPorSolucao == 0 ? tamanho != 0 : tamanho % bytesPorSolucao != 0) {
+                throw new IOException("Lote de " + tamanho + " bytes não é múltiplo do registro de " + bytesPorSolucao + " bytes");
+            }
+            EstadoTarefa estado = estados[arrendamento.indice];
+            bytesRecebidos.add(tamanho);
+            long limiteEspera = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_MAXIMA_ADIANTADOS_MS);
+            while (true) {
+                synchronized (estado) {
+                    if (estado.concluida || estado.dono != arrendamento) {
+                        return;
+                    }
+                    if (estado.direto) {
+                        gravar(registros, inicio, tamanho);
+                        return;
+                    }
+                    if (estado.transbordo != null) {
+                        estado.saidaTransbordo.write(registros, inicio, tamanho); // Depois do primeiro, todos vão para o disco, na ordem
+                        return;
+                    }
+                }
+                boolean reservou = podeEsperar ? bytesAdiantados.tryAcquire(tamanho, 100, TimeUnit.MILLISECONDS) : bytesAdiantados.tryAcquire(tamanho);
+                if (!reservou && podeEsperar && System.nanoTime() < limiteEspera && !vezSemDono()) {
+                    continue; // A tarefa da vez está com algum worker: o espaço vai ser liberado quando ela terminar
+                }
+                if (!reservou) {
+                    synchronized (estado) {
+                        if (estado.concluida || estado.direto || estado.dono != arrendamento || estado.transbordo != null) {
+                            continue; // Mudou enquanto isso: decide de novo
+                        }
+                        estado.transbordo = Files.createTempFile(arquivo.getParent(), chave + "-" + arrendamento.indice + "-", ".transbordo.parcial");
+                        estado.saidaTransbordo = new BufferedOutputStream(Files.newOutputStream(estado.transbordo), ProtocoloDistribuido.TAMANHO_LOTE);
+                        estado.saidaTransbordo.write(registros, inicio, tamanho);
+                        return;
+                    }
+                }
+                synchronized (estado) {
+                    if (estado.concluida || estado.direto || estado.dono != arrendamento || estado.transbordo != null) {
+                        bytesAdiantados.release(tamanho);
+                        continue; // Virou a vez desta tarefa (ou ela foi devolvida) enquanto esperava
+                    }
+                    if (estado.adiantados == null) {
+                        estado.adiantados = new ByteArrayOutputStream();
+                    }
+                    estado.adiantados.write(registros, inicio, tamanho);
+                    estado.reservados += tamanho;
+                    return;
+                }
+            }
+        }
+
+        // A tarefa da vez no arquivo está na fila, sem nenhum worker com ela
+        private synchronized boolean vezSemDono() {
+            if (proximaNoArquivo >= estados.length) {
+                return false;
+            }
+            synchronized (estados[proximaNoArquivo]) {
+                return estados[proximaNoArquivo].dono == null && !estados[proximaNoArquivo].concluida;
+            }
+        }
+
+        // Registra o resultado da tentativa. Devolve false, sem contar nada, se a tentativa já não
+        // é a atual da tarefa ou se a tarefa já foi concluída, então uma tarefa nunca conta duas vezes.
+        synchronized boolean concluir(Arrendamento arrendamento, long contagem) throws IOException {
+            int indice = arrendamento.indice;
+            if (concluidas[indice] || estados[indice].dono != arrendamento) {
+                return false;
+            }
+            concluidas[indice] = true;
+            total += contagem;
+            restantes--;
+            if (escritor != null) {
+                synchronized (estados[indice]) {
+                    estados[indice].concluida = true;
+                }
+                // Avança o arquivo pelas tarefas já concluídas, esvaziando os buffers de cada uma
+                while (proximaNoArquivo < concluidas.length && concluidas[proximaNoArquivo]) {
+                    proximaNoArquivo++;
+                    descarregarAdiantados(proximaNoArquivo);
+                }
+            }
+            if (restantes == 0) {
+                finalizar();
+            }
+            return true;
+        }
+
+        // Grava o buffer (e o transbordo) da tarefa que passou a ser a da vez e manda os próximos lotes dela direto
+        private void descarregarAdiantados(int indice) throws IOException {
+            if (indice >= estados.length) {
+                return;
+            }
+            EstadoTarefa estado = estados[indice];
+            synchronized (estado) {
+                synchronized (escritor) {
+                    estado.inicioNoArquivo = escritor.getQuantidade();
+                }
+                if (estado.adiantados != null) {
+                    byte[] registros = estado.adiantados.toByteArray();
+                    gravar(registros, 0, registros.length);
+                    estado.adiantados = null;
+                    bytesAdiantados.release(estado.reservados);
+                    estado.reservados = 0;
+                }
+                if (estado.transbordo != null) {
+                    estado.saidaTransbordo.close();
+                    try (InputStream transbordo = new BufferedInputStream(Files.newInputStream(estado.transbordo))) {
+                        byte[] bloco = new byte[ProtocoloDistribuido.TAMANHO_LOTE];
+                        int lidos;
+                        while ((lidos = transbordo.readNBytes(bloco, 0, bloco.length)) > 0) {
+                            gravar(bloco, 0, lidos);
+                        }
+                    }
+                    descartarTransbordo(estado);
+                }
+                estado.direto = true;
+            }
+        }
+
+        private static void descartarTransbordo(EstadoTarefa estado) throws IOException {
+            if (estado.transbordo != null) {
+                estado.saidaTransbordo.close();
+                Files.deleteIfExists(estado.transbordo);
+                estado.transbordo = null;
+                estado.saidaTransbordo = null;
+            }
+        }
+
+        private void gravar(byte[] registros, int inicio, int tamanho) {
+            synchronized (escritor) {
+                escritor.aceitarRegistros(registros, inicio, tamanho);
+            }
+        }
+
+        private void finalizar() throws IOException {
+            if (escritor != null) {
+                escritor.close();
+                System.out.printf("Soluções de %d rainhas recebidas (%.2f bytes por solução)%n",
+                        n, total == 0 ? 0.0 : (double) bytesRecebidos.sum() / total);
+            }
+            registrarResultado(this, total, arquivo);
+            System.out.println("Trabalho " + chave + " concluído: " + total + (modo == ProtocoloDistribuido.MODO_UNICAS ? " soluções únicas" : " soluções"));
+            notifyAll();
+        }
 
-        // Aguarda conexões de clientes e processa as soluções
-        while (true) {
-            Socket clienteSocket = servidorSocket.accept();
-            new ManipuladorCliente(clienteSocket).start();
+        synchronized long getTotal() {
+            return total;
         }
     }
 
-    // Adiciona uma solução ao servidor
-    private static synchronized void adicionarSolucao(int[] solucao) {
-        solucoes.add(solucao);
+    // Lotes recebidos de uma tarefa que ainda não chegou à vez dela no arquivo
+    private static class EstadoTarefa {
+        private ByteArrayOutputStream adiantados;
+        private int reservados; // Bytes do limite global ocupados pelo buffer
+        private boolean direto; // É a vez desta tarefa: os lotes vão direto para o arquivo
+        private boolean concluida;
+        private Arrendamento dono; // Tentativa atual, a única cujos lotes são aceitos
+        private long inicioNoArquivo; // Soluções no arquivo quando chegou a vez desta tarefa
+        private Path transbordo; // Lotes adiantados que não couberam no limite de memória, em ordem
+        private OutputStream saidaTransbordo;
     }
 
-    static class ManipuladorCliente extends Thread {
+    static class ManipuladorCliente implements Runnable {
         private Socket clienteSocket;
+        private Semaphore vagas;
+        private Trabalho trabalho;
+        private final Map<Integer, Arrendamento> arrendamentos = new LinkedHashMap<>(); // Tarefas com este worker, devolvidas se a conexão cair
 
-        ManipuladorCliente(Socket socket) {
+        ManipuladorCliente(Socket socket, Semaphore vagas) {
             this.clienteSocket = socket;
+            this.vagas = vagas;
         }
 
         @Override
         public void run() {
+            picoConexoes.accumulateAndGet(conexoesAtivas.incrementAndGet(), Math::max);
             try {
-                ObjectInputStream entrada = new ObjectInputStream(clienteSocket.getInputStream());
-                List<int[]> solucoesCliente = (List<int[]>) entrada.readObject();
-                for (int[] solucao : solucoesCliente) {
-                    adicionarSolucao(solucao);
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(clienteSocket.getInputStream()));
+                DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(clienteSocket.getOutputStream()));
+                ProtocoloDistribuido.Quadro pedido = ProtocoloDistribuido.ler(entrada);
+                if (pedido.tipo == ProtocoloDistribuido.CONSULTAS) {
+                    atenderConsultas(entrada, saida, pedido);
+                    return;
+                }
+                if (pedido.tipo != ProtocoloDistribuido.PEDIDO) {
+                    throw new IOException("Esperado quadro do tipo " + ProtocoloDistribuido.PEDIDO + ", recebido " + pedido.tipo);
+                }
+                int n = pedido.carga.getInt();
+                byte modo = pedido.carga.get();
+                if (n < 0 || n > MotorBitmask.N_MAXIMO) {
+                    throw new IOException("Pedido de " + n + " rainhas não é suportado"); // Nem trabalho nem cache para ele
+                }
+                if (modo != ProtocoloDistribuido.MODO_TODAS && modo != ProtocoloDistribuido.MODO_CONTAR
+                        && modo != ProtocoloDistribuido.MODO_UNICAS) {
+                    throw new IOException("Modo " + modo + " não é atendido pelo servidor"); // Idem: não pode cair em "todas"
+                }
+                // Workers antigos não mandam o paralelismo: uma tarefa por vez
+                int paralelismo = pedido.carga.remaining() >= 4 ? Math.max(1, Math.min(MAX_TAREFAS_POR_CONEXAO, pedido.carga.getInt())) : 1;
+
+                // Pedido repetido: responde com o resultado guardado, sem distribuir tarefas
+                RespostaEmCache resposta = null;
+                while (resposta == null && trabalho == null) {
+                    resposta = consultarCache(n, modo);
+                    if (resposta == null) {
+                        trabalho = obterTrabalho(n, modo);
+                    }
+                }
+                if (resposta != null) {
+                    responderDoCache(saida, n, resposta);
+                    return;
+                }
+
+                // Mantém até 'paralelismo' tarefas com o worker, recebendo os lotes de todas (que chegam
+                // intercalados, cada um com o índice da sua tarefa) até o resultado de cada uma.
+                // Só espera por uma tarefa nova quando o worker está sem nenhuma; com tarefas em
+                // andamento, as devolvidas por outros workers ficam para o próximo resultado.
+                // O worker ocupado manda batimentos; se ficar calado além do prazo, a leitura falha
+                // por tempo esgotado e as tarefas são devolvidas como as de um worker que caiu.
+                clienteSocket.setSoTimeout(prazoArrendamentoMs);
+                while (true) {
+                    while (arrendamentos.size() < paralelismo) {
+                        Arrendamento novo = arrendamentos.isEmpty() ? trabalho.arrendar() : trabalho.tentarArrendar();
+                        if (novo == null) {
+                            break;
+                        }
+                        arrendamentos.put(novo.indice, novo);
+                        ProtocoloDistribuido.enviarTarefa(saida, novo.indice, trabalho.prefixo(novo.indice));
+                    }
+                    if (arrendamentos.isEmpty()) {
+                        break;
+                    }
+                    ProtocoloDistribuido.Quadro quadro = ProtocoloDistribuido.ler(entrada);
+                    if (quadro.tipo == ProtocoloDistribuido.BATIMENTO) {
+                        continue;
+                    }
+                    if (quadro.tipo != ProtocoloDistribuido.LOTE && quadro.tipo != ProtocoloDistribuido.RESULTADO) {
+                        throw new IOException("Quadro inesperado do worker: " + quadro.tipo);
+                    }
+                    Arrendamento arrendamento = arrendamentos.get(quadro.carga.getInt());
+                    if (arrendamento == null) {
+                        throw new IOException("Worker respondeu por uma tarefa que não é dele");
+                    }
+                    if (quadro.tipo == ProtocoloDistribuido.LOTE) {
+                        trabalho.receberLote(arrendamento, quadro.carga.array(), quadro.carga.position(), quadro.carga.remaining(),
+                                arrendamentos.size() == 1);
+                    } else {
+                        trabalho.concluir(arrendamento, quadro.carga.getLong());
+                        arrendamentos.remove(arrendamento.indice);
+                    }
+                }
+
+                ProtocoloDistribuido.enviarFim(saida, trabalho.getTotal());
+            } catch (SocketTimeoutException e) {
+                System.out.println("Worker " + clienteSocket.getRemoteSocketAddress() + " passou "
+                        + prazoArrendamentoMs / 1000 + " s sem responder" + descreverDevolucao());
+            } catch (IOException e) {
+                System.out.println("Worker " + clienteSocket.getRemoteSocketAddress() + " perdido (" + e + ")" + descreverDevolucao());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                for (Arrendamento arrendamento : arrendamentos.values()) {
+                    try {
+                        trabalho.devolver(arrendamento);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                try {
+                    clienteSocket.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                conexoesAtivas.decrementAndGet();
+                vagas.release();
+            }
+        }
+
+        private String descreverDevolucao() {
+            if (arrendamentos.isEmpty()) {
+                return "";
+            }
+            StringJoiner tarefas = new StringJoiner(", ");
+            for (Arrendamento arrendamento : arrendamentos.values()) {
+                tarefas.add(arrendamento.indice + " (tentativa " + arrendamento.tentativa + ")");
+            }
+            return (arrendamentos.size() == 1 ? "; tarefa " : "; tarefas ") + tarefas + (arrendamentos.size() == 1 ? " volta" : " voltam") + " para a fila";
+        }
+
+        // Responde os lotes de consultas de completamento, um por vez, até o cliente fechar a conexão,
+        // e no fim registra os percentis de latência das consultas da conexão
+        private void atenderConsultas(DataInputStream entrada, DataOutputStream saida, ProtocoloDistribuido.Quadro quadro)
+                throws IOException, InterruptedException {
+            long[] latencias = new long[ProtocoloDistribuido.MAX_CONSULTAS_POR_LOTE];
+            int quantidade = 0;
+            int lotes = 0;
+            try {
+                while (true) {
+                    if (quadro.tipo != ProtocoloDistribuido.CONSULTAS) {
+                        throw new IOException("Quadro inesperado do cliente de consultas: " + quadro.tipo);
+                    }
+                    byte modo = quadro.carga.get();
+                    int n = quadro.carga.getInt(); // Conferido, com o tamanho do lote, em lerTabuleiros
+                    ConsultaCompletamento.Resultado[] resultados;
+                    try {
+                        resultados = ConsultaCompletamento.resolverLote(ProtocoloDistribuido.lerTabuleiros(quadro.carga, n), modo, poolConsultas);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Lote de consultas inválido: " + e.getMessage(), e);
+                    }
+                    ProtocoloDistribuido.enviarRespostas(saida, modo, n, resultados);
+                    if (quantidade + resultados.length > latencias.length) {
+                        latencias = Arrays.copyOf(latencias, Math.max(2 * latencias.length, quantidade + resultados.length));
+                    }
+                    for (ConsultaCompletamento.Resultado resultado : resultados) {
+                        latencias[quantidade++] = resultado.nanos;
+                    }
+                    lotes++;
+                    try {
+                        quadro = ProtocoloDistribuido.ler(entrada);
+                    } catch (EOFException e) {
+                        break; // O cliente terminou
+                    }
+                }
+            } finally {
+                System.out.println("Consultas de " + clienteSocket.getRemoteSocketAddress() + ": " + quantidade + " em " + lotes
+                        + (lotes == 1 ? " lote; " : " lotes; ") + ConsultaCompletamento.resumirLatencias(Arrays.copyOf(latencias, quantidade)));
+            }
+        }
+
+        // Envia as soluções guardadas em lotes (índice de tarefa -1) e o total
+        private void responderDoCache(DataOutputStream saida, int n, RespostaEmCache resposta) throws IOException {
+            if (resposta.arquivo != null) {
+                try (FileChannel arquivo = resposta.arquivo) {
+                    int bytesPorSolucao = Math.max(1, CodificacaoSolucoes.bytesPorSolucao(n));
+                    ByteBuffer lote = ByteBuffer.allocate(Math.max(1, ProtocoloDistribuido.TAMANHO_LOTE / bytesPorSolucao) * bytesPorSolucao);
+                    long posicao = ArquivoSolucoes.CABECALHO;
+                    long fim = ArquivoSolucoes.CABECALHO + resposta.total * CodificacaoSolucoes.bytesPorSolucao(n);
+                    while (posicao < fim) {
+                        lote.clear();
+                        lote.limit((int) Math.min(lote.capacity(), fim - posicao));
+                        while (lote.hasRemaining()) {
+                            if (arquivo.read(lote, posicao + lote.position()) < 0) {
+                                throw new EOFException("Arquivo do cache menor que o cabeçalho indica");
+                            }
+                        }
+                        ProtocoloDistribuido.enviarLote(saida, -1, lote.array(), lote.limit());
+                        posicao += lote.limit();
+                    }
                 }
-                entrada.close();
-                clienteSocket.close();
-            } catch (IOException | ClassNotFoundException e) {
-                e.printStackTrace();
             }
+            ProtocoloDistribuido.enviarFim(saida, resposta.total);
         }
     }
 }
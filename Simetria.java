@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Operações sobre as 8 simetrias do tabuleiro (rotações de 90° e reflexões).
+// Uma solução é a representante canônica da sua classe quando é lexicograficamente menor
+// ou igual a todas as suas imagens; como a ordem lexicográfica é a mesma ordem em que a busca
+// gera as soluções, o conjunto completo pode ser reconstruído ordenando as imagens.
+public class Simetria {
+    public static final int TRANSFORMACOES = 8;
+
+    // Solução canônica marcada com o tamanho da sua classe de simetria (1, 2, 4 ou 8 soluções)
+    public static class SolucaoCanonica {
+        public final int[] rainhas;
+        public final int classe;
+
+        public SolucaoCanonica(int[] rainhas, int classe) {
+            this.rainhas = rainhas;
+            this.classe = classe;
+        }
+    }
+
+    // Coluna da linha 'linha' na imagem 't' da solução, usando a permutação inversa já calculada
+    private static int imagem(int t, int[] rainhas, int[] inversa, int linha) {
+        int ultima = rainhas.length - 1;
+        switch (t) {
+            case 0: return rainhas[linha];                      // Identidade
+            case 1: return ultima - rainhas[linha];             // Espelho horizontal
+            case 2: return ultima - rainhas[ultima - linha];    // Rotação de 180°
+            case 3: return rainhas[ultima - linha];             // Espelho vertical
+            case 4: return inversa[linha];                      // Transposição
+            case 5: return ultima - inversa[linha];             // Rotação de 90°
+            case 6: return inversa[ultima - linha];             // Rotação de 270°
+            default: return ultima - inversa[ultima - linha];   // Antitransposição
+        }
+    }
+
+    // Compara a imagem 't' com a solução original: negativo se a imagem vier antes na ordem da busca
+    private static int compararImagem(int t, int[] rainhas, int[] inversa) {
+        for (int linha = 0; linha < rainhas.length; linha++) {
+            int diferenca = imagem(t, rainhas, inversa, linha) - rainhas[linha];
+            if (diferenca != 0) {
+                return diferenca;
+            }
+        }
+        return 0;
+    }
+
+    // Devolve o tamanho da classe se a solução for canônica, ou 0 caso contrário.
+    // 'inversa' é um vetor de trabalho com n posições, para não alocar nada por solução.
+    public static int classeSeCanonica(int[] rainhas, int[] inversa) {
+        for (int linha = 0; linha < rainhas.length; linha++) {
+            inversa[rainhas[linha]] = linha;
+        }
+        int iguais = 1; // A identidade
+        for (int t = 1; t < TRANSFORMACOES; t++) {
+            int comparacao = compararImagem(t, rainhas, inversa);
+            if (comparacao < 0) {
+                return 0; // Existe uma imagem menor: não é a representante
+            }
+            if (comparacao == 0) {
+                iguais++;
+            }
+        }
+        return TRANSFORMACOES / iguais;
+    }
+
+    // Gera as imagens distintas de uma solução canônica
+    public static void expandir(int[] rainhas, ReceptorSolucao receptor) {
+        int n = rainhas.length;
+        int[] inversa = new int[n];
+        for (int linha = 0; linha < n; linha++) {
+            inversa[rainhas[linha]] = linha;
+        }
+        List<int[]> geradas = new ArrayList<>();
+        for (int t = 0; t < TRANSFORMACOES; t++) {
+            int[] imagem = new int[n];
+            for (int linha = 0; linha < n; linha++) {
+                imagem[linha] = imagem(t, rainhas, inversa, linha);
+            }
+            boolean repetida = false;
+            for (int[] anterior : geradas) {
+                repetida |= Arrays.equals(anterior, imagem);
+            }
+            if (!repetida) {
+                geradas.add(imagem);
+                receptor.aceitar(imagem);
+            }
+        }
+    }
+
+    // Reconstrói o conjunto completo de soluções, na ordem da busca, a partir das canônicas
+    public static ArmazemSolucoes expandirTodas(int n, List<SolucaoCanonica> unicas) {
+        List<int[]> todas = new ArrayList<>();
+        for (SolucaoCanonica unica : unicas) {
+            expandir(unica.rainhas, todas::add); // expandir entrega um vetor novo para cada imagem
+        }
+        todas.sort(Arrays::compare);
+        ArmazemSolucoes armazem = new ArmazemSolucoes(n);
+        for (int[] solucao : todas) {
+            armazem.aceitar(solucao);
+        }
+        return armazem;
+    }
+}
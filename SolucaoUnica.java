@@ -0,0 +1,208 @@
+import java.util.SplittableRandom;
+
+// Uma única solução para n grande, sem busca com retrocesso. Dois caminhos, ambos com memória O(n):
+// - construir: a construção explícita (pares e depois ímpares, com os ajustes para n mod 6 = 2 ou 3),
+//   em tempo O(n) e sempre a mesma solução;
+// - minimosConflitos: busca local sobre permutações (como a de Sosic e Gu), que coloca quase todas
+//   as rainhas sem conflito por sorteio e conserta as poucas restantes trocando colunas entre linhas.
+// verificar confere qualquer uma delas em O(n). Para n = 2 e 3 não há solução e os dois devolvem null.
+public class SolucaoUnica {
+    private static final int LINHAS_SEM_SORTEIO_LIVRE = 64; // Últimas linhas postas sem exigir que estejam livres
+    private static final int TENTATIVAS_POR_LINHA = 1024; // Trocas sorteadas para tirar uma rainha do ataque
+    private static final int PASSADAS_SEM_MELHORA = 32; // Passadas sem reduzir os conflitos antes de recomeçar
+
+    private SolucaoUnica() {
+    }
+
+    // Construção explícita: rainhas[linha] = coluna, com as colunas (contadas a partir de 1) listadas
+    // como 2, 4, 6, ... seguidas de 1, 3, 5, ...; para n mod 6 = 2 troca 1 com 3 e leva 5 ao fim,
+    // para n mod 6 = 3 leva 2 ao fim dos pares e 1, 3 ao fim dos ímpares
+    public static int[] construir(int n) {
+        if (n == 2 || n == 3) {
+            return null;
+        }
+        int[] rainhas = new int[n];
+        int linha = 0;
+        int resto = n % 6;
+        for (int coluna = resto == 3 ? 4 : 2; coluna <= n; coluna += 2) {
+            rainhas[linha++] = coluna - 1;
+        }
+        if (resto == 3) {
+            rainhas[linha++] = 2 - 1;
+        }
+        if (resto == 2) {
+            rainhas[linha++] = 3 - 1;
+            rainhas[linha++] = 1 - 1;
+            for (int coluna = 7; coluna <= n; coluna += 2) {
+                rainhas[linha++] = coluna - 1;
+            }
+            rainhas[linha++] = 5 - 1;
+        } else if (resto == 3) {
+            for (int coluna = 5; coluna <= n; coluna += 2) {
+                rainhas[linha++] = coluna - 1;
+            }
+            rainhas[linha++] = 1 - 1;
+            rainhas[linha++] = 3 - 1;
+        } else {
+            for (int coluna = 1; coluna <= n; coluna += 2) {
+                rainhas[linha++] = coluna - 1;
+            }
+        }
+        return rainhas;
+    }
+
+    // Busca local de mínimos conflitos. As rainhas formam sempre uma permutação, então só as
+    // diagonais podem ter conflito; a semente fixa o sorteio (mesma semente, mesma solução).
+    public static int[] minimosConflitos(int n, long semente) {
+        if (n == 2 || n == 3) {
+            return null;
+        }
+        SplittableRandom aleatorio = new SplittableRandom(semente);
+        while (true) {
+            Tabuleiro tabuleiro = new Tabuleiro(n);
+            tabuleiro.posicionar(aleatorio);
+            if (tabuleiro.consertar(aleatorio)) {
+                return tabuleiro.rainhas;
+            }
+            // Parou num mínimo local: recomeça com outro sorteio
+        }
+    }
+
+    // Confere a solução em O(n): devolve a primeira linha cuja rainha está fora do tabuleiro ou
+    // ataca uma rainha de linha anterior, ou -1 se a solução é válida
+    public static int verificar(int[] rainhas) {
+        int n = rainhas.length;
+        boolean[] colunas = new boolean[n];
+        boolean[] descendentes = new boolean[Math.max(1, 2 * n - 1)];
+        boolean[] ascendentes = new boolean[Math.max(1, 2 * n - 1)];
+        for (int linha = 0; linha < n; linha++) {
+            int coluna = rainhas[linha];
+            if (coluna < 0 || coluna >= n || colunas[coluna]
+                    || descendentes[linha + coluna] || ascendentes[linha - coluna + n - 1]) {
+                return linha;
+            }
+            colunas[coluna] = true;
+            descendentes[linha + coluna] = true;
+            ascendentes[linha - coluna + n - 1] = true;
+        }
+        return -1;
+    }
+
+    // Permutação em ajuste, com a ocupação de cada diagonal e o total de colisões (rainhas a mais
+    // em cada diagonal), atualizados em O(1) a cada troca
+    private static class Tabuleiro {
+        private final int n;
+        private final int[] rainhas;
+        private final int[] descendentes; // Rainhas por diagonal linha + coluna
+        private final int[] ascendentes;  // Rainhas por diagonal linha - coluna + n - 1
+        private long colisoes;
+
+        Tabuleiro(int n) {
+            this.n = n;
+            this.rainhas = new int[n];
+            this.descendentes = new int[Math.max(1, 2 * n - 1)];
+            this.ascendentes = new int[Math.max(1, 2 * n - 1)];
+            for (int linha = 0; linha < n; linha++) {
+                rainhas[linha] = linha;
+            }
+        }
+
+        // Primeira fase: cada linha sorteia uma das colunas ainda não usadas até achar uma com as
+        // duas diagonais livres (até 3n sorteios no total); as últimas linhas ficam com o que sobrar
+        void posicionar(SplittableRandom aleatorio) {
+            int linha = 0;
+            long sorteios = 3L * n;
+            while (linha < n - LINHAS_SEM_SORTEIO_LIVRE && sorteios > 0) {
+                trocarColunas(linha, linha + aleatorio.nextInt(n - linha));
+                if (descendentes[linha + rainhas[linha]] == 0 && ascendentes[linha - rainhas[linha] + n - 1] == 0) {
+                    colisoes += adicionar(linha, rainhas[linha]);
+                    linha++;
+                } else {
+                    sorteios--;
+                }
+            }
+            for (; linha < n; linha++) {
+                trocarColunas(linha, linha + aleatorio.nextInt(n - linha));
+                colisoes += adicionar(linha, rainhas[linha]);
+            }
+        }
+
+        // Segunda fase: para cada rainha atacada, sorteia outra linha e troca as colunas das duas
+        // se isso reduzir as colisões. Devolve false se as colisões pararem de cair.
+        boolean consertar(SplittableRandom aleatorio) {
+            int semMelhora = 0;
+            while (colisoes > 0) {
+                long antes = colisoes;
+                for (int linha = 0; linha < n && colisoes > 0; linha++) {
+                    if (!atacada(linha)) {
+                        continue;
+                    }
+                    for (int tentativa = 0; tentativa < TENTATIVAS_POR_LINHA; tentativa++) {
+                        int outra = aleatorio.nextInt(n);
+                        if (outra != linha && trocarSeMelhorar(linha, outra)) {
+                            break;
+                        }
+                    }
+                }
+                semMelhora = colisoes < antes ? 0 : semMelhora + 1;
+                if (semMelhora == PASSADAS_SEM_MELHORA) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean atacada(int linha) {
+            int coluna = rainhas[linha];
+            return descendentes[linha + coluna] > 1 || ascendentes[linha - coluna + n - 1] > 1;
+        }
+
+        // Troca as colunas das linhas a e b; desfaz a troca se as colisões não diminuírem
+        private boolean trocarSeMelhorar(int a, int b) {
+            int colunaA = rainhas[a];
+            int colunaB = rainhas[b];
+            long variacao = -remover(a, colunaA) - remover(b, colunaB) + adicionar(a, colunaB) + adicionar(b, colunaA);
+            if (variacao < 0) {
+                rainhas[a] = colunaB;
+                rainhas[b] = colunaA;
+                colisoes += variacao;
+                return true;
+            }
+            remover(a, colunaB);
+            remover(b, colunaA);
+            adicionar(a, colunaA);
+            adicionar(b, colunaB);
+            return false;
+        }
+
+        private void trocarColunas(int a, int b) {
+            int coluna = rainhas[a];
+            rainhas[a] = rainhas[b];
+            rainhas[b] = coluna;
+        }
+
+        // Põe uma rainha nas diagonais de (linha, coluna) e devolve quantas colisões ela criou
+        private int adicionar(int linha, int coluna) {
+            int criadas = 0;
+            if (descendentes[linha + coluna]++ > 0) {
+                criadas++;
+            }
+            if (ascendentes[linha - coluna + n - 1]++ > 0) {
+                criadas++;
+            }
+            return criadas;
+        }
+
+        // Tira a rainha das diagonais de (linha, coluna) e devolve quantas colisões deixaram de existir
+        private int remover(int linha, int coluna) {
+            int desfeitas = 0;
+            if (--descendentes[linha + coluna] > 0) {
+                desfeitas++;
+            }
+            if (--ascendentes[linha - coluna + n - 1] > 0) {
+                desfeitas++;
+            }
+            return desfeitas;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package nqueens.jmh;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Trabalho de um worker distribuído: ClienteDistribuidoNQueens.resolverNQueens em cada tarefa
+// da mesma divisão que o coordenador faz, uma depois da outra. O custo da rede e do coordenador
+// fica de fora; ele é medido pelo BenchmarkServidor, na raiz do projeto. No modo "todas" as
+// soluções vão para um ArmazemSolucoes, para comparar com os outros dois solucionadores.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class BenchmarkDistribuido {
+    private static final int TAREFAS_MINIMAS = 256; // O mesmo de ServidorDistribuidoNQueens
+
+    @Param({"8", "9", "10", "11", "12", "13", "14", "15", "16"})
+    public int n;
+
+    @Param({"contar", "todas"})
+    public String modo;
+
+    private List<int[]> tarefas;
+
+    @Setup(Level.Trial)
+    public void dividir() throws Throwable {
+        tarefas = Solucionadores.tarefas(n, TAREFAS_MINIMAS);
+    }
+
+    @Benchmark
+    public long resolver() throws Throwable {
+        long total = 0;
+        if (modo.equals("contar")) {
+            for (int[] prefixo : tarefas) {
+                total += (long) Solucionadores.DISTRIBUIDO_CONTAR.invokeExact(copiar(prefixo), prefixo.length);
+            }
+            return total;
+        }
+        Object armazem = (Object) Solucionadores.NOVO_ARMAZEM.invokeExact(n);
+        for (int[] prefixo : tarefas) {
+            Solucionadores.DISTRIBUIDO_RESOLVER.invokeExact(copiar(prefixo), prefixo.length, armazem);
+        }
+        return (long) Solucionadores.TAMANHO.invokeExact(armazem);
+    }
+
+    private int[] copiar(int[] prefixo) {
+        return Arrays.copyOf(prefixo, n);
+    }
+}
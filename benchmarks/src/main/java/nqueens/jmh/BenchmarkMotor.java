@@ -0,0 +1,46 @@
+package nqueens.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Os motores de MotorBusca lado a lado, numa thread: o recursivo (MotorBitmask), o de pilha
+// explícita (MotorIterativo) e o vetorial (MotorVetorial, várias subárvores por instrução; os
+// forks ligam jdk.incubator.vector para ele). O motor é criado uma vez por rodada, então com o
+// profiler de GC o "contar" deve mostrar gc.alloc.rate.norm perto de zero; no "todas" a alocação
+// é a do ArmazemSolucoes, igual para todos (o vetorial enumera com o motor iterativo).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class BenchmarkMotor {
+
+    @Param({"8", "10", "12", "14", "16"})
+    public int n;
+
+    @Param({"recursivo", "iterativo", "vetorial"})
+    public String motor;
+
+    @Param({"contar", "todas"})
+    public String modo;
+
+    private Object instancia;
+    private int[] prefixo;
+
+    @Setup
+    public void preparar() throws Throwable {
+        instancia = (Object) Solucionadores.NOVO_MOTOR.invokeExact(n, motor);
+        prefixo = new int[n];
+    }
+
+    @Benchmark
+    public long resolver() throws Throwable {
+        if (modo.equals("contar")) {
+            return (long) Solucionadores.MOTOR_CONTAR.invokeExact(instancia, (Object) prefixo, 0);
+        }
+        Object armazem = (Object) Solucionadores.NOVO_ARMAZEM.invokeExact(n);
+        Solucionadores.MOTOR_ENUMERAR.invokeExact(instancia, (Object) prefixo, 0, armazem);
+        return (long) Solucionadores.TAMANHO.invokeExact(armazem);
+    }
+}
@@ -0,0 +1,34 @@
+package nqueens.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// BuscaParalela, usada por NQueensParalelo, com 1 a N threads. Para ir além de 8 threads:
+// -p threads=1,2,4,8,16,32. A busca cria o próprio ForkJoinPool, então a thread do JMH só espera.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class BenchmarkParalelo {
+
+    @Param({"8", "9", "10", "11", "12", "13", "14", "15", "16"})
+    public int n;
+
+    @Param({"contar", "todas"})
+    public String modo;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Benchmark
+    public long resolver() throws Throwable {
+        Object busca = (Object) Solucionadores.NOVA_BUSCA.invokeExact(n, threads);
+        if (modo.equals("contar")) {
+            return (long) Solucionadores.BUSCA_CONTAR.invokeExact(busca);
+        }
+        Object solucoes = (Object) Solucionadores.BUSCA_ENUMERAR.invokeExact(busca);
+        return (long) Solucionadores.TAMANHO.invokeExact(solucoes);
+    }
+}
@@ -0,0 +1,31 @@
+package nqueens.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// NQueensSequencial.resolverNQueens em uma thread. "contar" usa o caminho sem alocação por
+// solução (contarNQueens); "todas" guarda cada solução num ArmazemSolucoes, como a interface faz.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class BenchmarkSequencial {
+
+    @Param({"8", "9", "10", "11", "12", "13", "14", "15", "16"})
+    public int n;
+
+    @Param({"contar", "todas"})
+    public String modo;
+
+    @Benchmark
+    public long resolver() throws Throwable {
+        if (modo.equals("contar")) {
+            return (long) Solucionadores.SEQUENCIAL_CONTAR.invokeExact(new int[n], 0);
+        }
+        Object armazem = (Object) Solucionadores.NOVO_ARMAZEM.invokeExact(n);
+        Solucionadores.SEQUENCIAL_RESOLVER.invokeExact(new int[n], 0, armazem);
+        return (long) Solucionadores.TAMANHO.invokeExact(armazem);
+    }
+}
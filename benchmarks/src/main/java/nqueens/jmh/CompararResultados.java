@@ -0,0 +1,224 @@
+package nqueens.jmh;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+// Compara uma rodada do JMH (JSON) com a base de referência e falha (código de saída 1) se
+// algum caso ficou mais lento ou passou a alocar mais do que o limite permite.
+// Uso: CompararResultados base.json atual.json [limites.properties]
+//
+// Os limites são porcentagens sobre a base: "tempo" e "alocacao" valem para todos os casos, e
+// "tempo.<benchmark>" ou "alocacao.<benchmark>" (nome curto, como BenchmarkParalelo.resolver)
+// sobrescrevem para um benchmark. Um caso só é regressão se, além de passar do limite, o
+// intervalo de erro do JMH da rodada atual não encostar no da base.
+public class CompararResultados {
+    private static final String ALOCACAO = "gc.alloc.rate.norm";
+    private static final double FOLGA_ALOCACAO = 64; // Bytes por operação ignorados, ruído do próprio JMH
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: CompararResultados base.json atual.json [limites.properties]");
+            System.exit(2);
+        }
+        Map<String, Caso> base = ler(args[0]);
+        Map<String, Caso> atual = ler(args[1]);
+        Properties limites = new Properties();
+        limites.setProperty("tempo", "10");
+        limites.setProperty("alocacao", "5");
+        if (args.length > 2) {
+            try (Reader leitor = Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+                limites.load(leitor);
+            }
+        }
+
+        int regressoes = 0;
+        System.out.printf("%-70s %12s %12s %8s %14s %14s%n", "Caso", "Base", "Atual", "Δ%", "Base B/op", "Atual B/op");
+        for (Map.Entry<String, Caso> entrada : atual.entrySet()) {
+            Caso antes = base.get(entrada.getKey());
+            Caso depois = entrada.getValue();
+            if (antes == null) {
+                System.out.printf("%-70s %12s %12.3f %8s%n", entrada.getKey(), "-", depois.score, "novo");
+                continue;
+            }
+            double limiteTempo = limite(limites, "tempo", depois.benchmark);
+            double limiteAlocacao = limite(limites, "alocacao", depois.benchmark);
+            double variacao = (depois.score - antes.score) / antes.score * 100;
+            boolean maisLento = variacao > limiteTempo && depois.score - depois.erro > antes.score + antes.erro;
+            boolean alocaMais = !Double.isNaN(antes.alocacao) && !Double.isNaN(depois.alocacao)
+                    && depois.alocacao > antes.alocacao * (1 + limiteAlocacao / 100) + FOLGA_ALOCACAO;
+            String marca = maisLento && alocaMais ? "  <- tempo e alocação" : maisLento ? "  <- tempo" : alocaMais ? "  <- alocação" : "";
+            System.out.printf("%-70s %12.3f %12.3f %+8.1f %14.0f %14.0f%s%n", entrada.getKey(), antes.score, depois.score,
+                    variacao, antes.alocacao, depois.alocacao, marca);
+            if (maisLento || alocaMais) {
+                regressoes++;
+            }
+        }
+        System.out.println(regressoes == 0 ? "Nenhuma regressão" : regressoes + " caso(s) acima do limite");
+        System.exit(regressoes == 0 ? 0 : 1);
+    }
+
+    private static double limite(Properties limites, String tipo, String benchmark) {
+        String curto = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+        return Double.parseDouble(limites.getProperty(tipo + "." + curto, limites.getProperty(tipo)));
+    }
+
+    // Um resultado do JMH: benchmark + parâmetros, pontuação com erro e bytes alocados por operação
+    private static class Caso {
+        String benchmark;
+        double score;
+        double erro;
+        double alocacao = Double.NaN;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Caso> ler(String arquivo) throws IOException {
+        String texto = new String(Files.readAllBytes(Paths.get(arquivo)), StandardCharsets.UTF_8);
+        Map<String, Caso> casos = new LinkedHashMap<>();
+        for (Object item : (List<Object>) new LeitorJson(texto).valor()) {
+            Map<String, Object> resultado = (Map<String, Object>) item;
+            Caso caso = new Caso();
+            caso.benchmark = (String) resultado.get("benchmark");
+            Map<String, Object> primaria = (Map<String, Object>) resultado.get("primaryMetric");
+            caso.score = numero(primaria.get("score"));
+            caso.erro = numero(primaria.get("scoreError"));
+            if (Double.isNaN(caso.erro)) {
+                caso.erro = 0; // Poucas iterações: o JMH não calcula o intervalo
+            }
+            Map<String, Object> secundarias = (Map<String, Object>) resultado.get("secondaryMetrics");
+            if (secundarias != null) {
+                for (Map.Entry<String, Object> metrica : secundarias.entrySet()) {
+                    if (metrica.getKey().endsWith(ALOCACAO)) {
+                        caso.alocacao = numero(((Map<String, Object>) metrica.getValue()).get("score"));
+                    }
+                }
+            }
+            Map<String, Object> parametros = (Map<String, Object>) resultado.get("params");
+            String chave = caso.benchmark + (parametros == null ? "" : new TreeMap<>(parametros).toString());
+            casos.put(chave, caso);
+        }
+        return casos;
+    }
+
+    // O JMH grava "NaN" como texto quando não há erro calculado
+    private static double numero(Object valor) {
+        if (valor instanceof Number) {
+            return ((Number) valor).doubleValue();
+        }
+        return valor == null ? Double.NaN : Double.parseDouble(valor.toString());
+    }
+
+    // Leitor mínimo de JSON, o suficiente para o arquivo de resultados do JMH
+    private static class LeitorJson {
+        private final String texto;
+        private int posicao;
+
+        LeitorJson(String texto) {
+            this.texto = texto;
+        }
+
+        Object valor() {
+            pularEspacos();
+            char c = texto.charAt(posicao);
+            if (c == '{') {
+                Map<String, Object> objeto = new LinkedHashMap<>();
+                posicao++;
+                pularEspacos();
+                if (texto.charAt(posicao) == '}') {
+                    posicao++;
+                    return objeto;
+                }
+                while (true) {
+                    pularEspacos();
+                    String nome = texto();
+                    pularEspacos();
+                    esperar(':');
+                    objeto.put(nome, valor());
+                    pularEspacos();
+                    if (texto.charAt(posicao++) == '}') {
+                        return objeto;
+                    }
+                }
+            }
+            if (c == '[') {
+                List<Object> lista = new ArrayList<>();
+                posicao++;
+                pularEspacos();
+                if (texto.charAt(posicao) == ']') {
+                    posicao++;
+                    return lista;
+                }
+                while (true) {
+                    lista.add(valor());
+                    pularEspacos();
+                    if (texto.charAt(posicao++) == ']') {
+                        return lista;
+                    }
+                }
+            }
+            if (c == '"') {
+                return texto();
+            }
+            int inicio = posicao;
+            while (posicao < texto.length() && ",}] \t\r\n".indexOf(texto.charAt(posicao)) < 0) {
+                posicao++;
+            }
+            String literal = texto.substring(inicio, posicao);
+            switch (literal) {
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                case "null":
+                    return null;
+                default:
+                    return Double.parseDouble(literal);
+            }
+        }
+
+        private String texto() {
+            esperar('"');
+            StringBuilder valor = new StringBuilder();
+            while (true) {
+                char c = texto.charAt(posicao++);
+                if (c == '"') {
+                    return valor.toString();
+                }
+                if (c == '\\') {
+                    char escape = texto.charAt(posicao++);
+                    switch (escape) {
+                        case 'n':
+                            valor.append('\n');
+                            break;
+                        case 't':
+                            valor.append('\t');
+                            break;
+                        case 'u':
+                            valor.append((char) Integer.parseInt(texto.substring(posicao, posicao + 4), 16));
+                            posicao += 4;
+                            break;
+                        default:
+                            valor.append(escape);
+                    }
+                } else {
+                    valor.append(c);
+                }
+            }
+        }
+
+        private void esperar(char esperado) {
+            if (texto.charAt(posicao++) != esperado) {
+                throw new IllegalArgumentException("JSON inválido na posição " + (posicao - 1) + ": esperado '" + esperado + "'");
+            }
+        }
+
+        private void pularEspacos() {
+            while (posicao < texto.length() && Character.isWhitespace(texto.charAt(posicao))) {
+                posicao++;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package nqueens.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Ponto de entrada do benchmarks.jar: aceita as mesmas opções do JMH, mas sempre liga o
+// profiler de GC (taxa de alocação e bytes por operação) e, se nada for pedido, grava os
+// resultados em JSON em resultados-jmh.json, o formato lido por CompararResultados.
+public class Executar {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linha = new CommandLineOptions(args);
+        if (linha.shouldHelp() || linha.shouldList() || linha.shouldListProfilers() || linha.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder opcoes = new OptionsBuilder().parent(linha);
+        boolean temGC = linha.getProfilers().stream().anyMatch(p -> p.getKlass().equals("gc") || p.getKlass().equals(GCProfiler.class.getName()));
+        if (!temGC) {
+            opcoes.addProfiler(GCProfiler.class);
+        }
+        if (!linha.getResult().hasValue()) {
+            opcoes.resultFormat(ResultFormatType.JSON).result("resultados-jmh.json");
+        }
+        new Runner(opcoes.build()).run();
+    }
+}
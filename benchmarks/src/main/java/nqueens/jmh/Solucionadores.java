@@ -0,0 +1,130 @@
+package nqueens.jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Acesso às classes do projeto. Elas ficam no pacote padrão, que não pode ser importado de um
+// pacote com nome (e o JMH exige um), então cada método é resolvido uma vez num MethodHandle.
+// Guardados em campos static final, os handles são constantes para o JIT e a chamada via
+// invokeExact custa o mesmo que a chamada direta. Os tipos do projeto aparecem como Object.
+final class Solucionadores {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    static final Class<?> RECEPTOR = classe("ReceptorSolucao");
+    private static final Class<?> FONTE = classe("FonteSolucoes");
+
+    // NQueensSequencial e ClienteDistribuidoNQueens: (rainhas, linha, receptor) e (rainhas, linha) -> contagem
+    static final MethodHandle SEQUENCIAL_RESOLVER = resolver("NQueensSequencial");
+    static final MethodHandle SEQUENCIAL_CONTAR = contar("NQueensSequencial");
+    static final MethodHandle DISTRIBUIDO_RESOLVER = resolver("ClienteDistribuidoNQueens");
+    static final MethodHandle DISTRIBUIDO_CONTAR = contar("ClienteDistribuidoNQueens");
+
+    // BuscaParalela(n, paralelismo), contar() e enumerar() -> FonteSolucoes
+    static final MethodHandle NOVA_BUSCA = construtor("BuscaParalela", int.class, int.class);
+    static final MethodHandle BUSCA_CONTAR = metodo("BuscaParalela", "contar", MethodType.methodType(long.class));
+    static final MethodHandle BUSCA_ENUMERAR = metodo("BuscaParalela", "enumerar", MethodType.methodType(FONTE));
+
+    // MotorBusca.criar(n, tipo), contar(prefixo, linhas) e enumerar(prefixo, linhas, receptor)
+    static final MethodHandle NOVO_MOTOR = estatico("MotorBusca", "criar", MethodType.methodType(classe("MotorBusca"), int.class, String.class));
+    static final MethodHandle MOTOR_CONTAR = metodo("MotorBusca", "contar", MethodType.methodType(long.class, int[].class, int.class));
+    static final MethodHandle MOTOR_ENUMERAR = metodo("MotorBusca", "enumerar", MethodType.methodType(void.class, int[].class, int.class, RECEPTOR));
+
+    // ArmazemSolucoes(n), o receptor que guarda tudo, e FonteSolucoes.tamanho()
+    static final MethodHandle NOVO_ARMAZEM = construtor("ArmazemSolucoes", int.class);
+    static final MethodHandle TAMANHO = metodo("FonteSolucoes", "tamanho", MethodType.methodType(long.class));
+
+    private Solucionadores() {
+    }
+
+    // Prefixos válidos das primeiras 'profundidade' linhas, na ordem da busca
+    static List<int[]> prefixos(int n, int profundidade) throws Throwable {
+        List<int[]> prefixos = new ArrayList<>();
+        Object receptor = Proxy.newProxyInstance(RECEPTOR.getClassLoader(), new Class<?>[] {RECEPTOR}, (proxy, metodo, argumentos) -> {
+            if (metodo.getName().equals("aceitar")) {
+                prefixos.add(Arrays.copyOf((int[]) argumentos[0], profundidade));
+            }
+            return null;
+        });
+        Object motor = construtor("MotorBitmask", int.class).invoke(n);
+        metodo("MotorBitmask", "enumerarPrefixos", MethodType.methodType(void.class, int.class, RECEPTOR)).invoke(motor, profundidade, receptor);
+        return prefixos;
+    }
+
+    // Mesma divisão do coordenador: a menor profundidade com pelo menos 'minimo' prefixos
+    static List<int[]> tarefas(int n, int minimo) throws Throwable {
+        List<int[]> prefixos = new ArrayList<>();
+        for (int profundidade = 1; profundidade <= n && prefixos.size() < minimo; profundidade++) {
+            prefixos = prefixos(n, profundidade);
+        }
+        return prefixos;
+    }
+
+    private static MethodHandle resolver(String classe) {
+        return privado(classe, "resolverNQueens", MethodType.methodType(void.class, int[].class, int.class, RECEPTOR))
+                .asType(MethodType.methodType(void.class, int[].class, int.class, Object.class));
+    }
+
+    private static MethodHandle contar(String classe) {
+        return privado(classe, "contarNQueens", MethodType.methodType(long.class, int[].class, int.class));
+    }
+
+    private static MethodHandle construtor(String classe, Class<?>... parametros) {
+        try {
+            return LOOKUP.findConstructor(classe(classe), MethodType.methodType(void.class, parametros))
+                    .asType(MethodType.methodType(Object.class, parametros));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Método público de instância, com o receptor e o retorno de tipos do projeto vistos como Object
+    private static MethodHandle metodo(String classe, String nome, MethodType tipo) {
+        try {
+            MethodHandle handle = LOOKUP.findVirtual(classe(classe), nome, tipo);
+            MethodType generico = handle.type().changeParameterType(0, Object.class);
+            if (!tipo.returnType().isPrimitive()) {
+                generico = generico.changeReturnType(Object.class);
+            }
+            for (int i = 1; i < generico.parameterCount(); i++) {
+                if (!generico.parameterType(i).isPrimitive()) {
+                    generico = generico.changeParameterType(i, Object.class);
+                }
+            }
+            return handle.asType(generico);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Método público estático, com o retorno de tipo do projeto visto como Object
+    private static MethodHandle estatico(String classe, String nome, MethodType tipo) {
+        try {
+            return LOOKUP.findStatic(classe(classe), nome, tipo).asType(tipo.changeReturnType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Métodos estáticos privados das classes principais, abertos pelo lookup privado
+    private static MethodHandle privado(String classe, String nome, MethodType tipo) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(classe(classe), LOOKUP);
+            return lookup.findStatic(classe(classe), nome, tipo);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?> classe(String nome) {
+        try {
+            return Class.forName(nome);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Classe " + nome + " não encontrada no classpath", e);
+        }
+    }
+}
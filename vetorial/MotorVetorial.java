@@ -0,0 +1,254 @@
+import java.util.Arrays;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Motor "vetorial" de MotorBusca, com a Vector API (jdk.incubator.vector). Cada faixa do vetor
+// percorre uma subárvore diferente, com a mesma busca por máscaras do MotorIterativo: as máscaras
+// de ataque e a escolha da próxima coluna livre são calculadas para várias subárvores por
+// instrução, e cada faixa empilha e desempilha por conta própria (numa pilha intercalada,
+// posição linha * FAIXAS + faixa). Quando a subárvore de uma faixa acaba, ela pega a próxima.
+// Só a contagem é vetorial: as faixas terminam fora de ordem, então enumerar (e a contagem com
+// -Dnqueens.metricas=true, que precisa de cada nó) fica com o MotorIterativo.
+// O laço foge do que o C2 do JDK 17 não torna intrínseco, porque ali cada vetor vira um objeto no
+// heap a cada passo: as máscaras são int (n até 32; acima disso conta com o iterativo), não há
+// gather/scatter nem operações com escalar, e nenhum vetor passa de uma iteração para a outra.
+//
+// Fica fora da compilação principal porque o módulo é incubado e exige --add-modules:
+//   javac --add-modules jdk.incubator.vector -cp . -d . vetorial/MotorVetorial.java
+//   java --add-modules jdk.incubator.vector -Dnqueens.motor=vetorial NQueensLote --n 14
+// Sem a classe ou sem o módulo, MotorBusca.criar cai no motor iterativo com um aviso.
+public class MotorVetorial implements MotorBusca {
+    // Até 256 bits: com 512 bits (AVX-512) a busca não fica mais rápida, porque a pilha é lida e
+    // escrita faixa a faixa, e as máscaras de 512 bits do JDK 17 já derrubaram o C2 neste laço
+    private static final VectorSpecies<Integer> ESPECIE =
+            IntVector.SPECIES_PREFERRED.vectorBitSize() > 256 ? IntVector.SPECIES_256 : IntVector.SPECIES_PREFERRED;
+    private static final int FAIXAS = ESPECIE.length();
+    private static final int N_MAXIMO_VETORIAL = 32; // Colunas que cabem numa faixa int
+    private static final int SUBARVORES_POR_FAIXA = 16; // Subárvores por faixa, para as faixas não ficarem ociosas no fim
+
+    private final int n;
+    private final int cheio; // Máscara com as n colunas do tabuleiro
+    private final MotorIterativo escalar;
+    private final int[] pilhaColunas;
+    private final int[] pilhaDiag1;
+    private final int[] pilhaDiag2;
+    private final int[] pilhaLivres;
+    private final int[] indices = new int[FAIXAS];
+    private final int[] faixa = new int[FAIXAS]; // Posição de cada faixa: 0, 1, 2, ...
+    private final int[] colunasDaFaixa = new int[FAIXAS];
+    private final int[] diag1DaFaixa = new int[FAIXAS];
+    private final int[] diag2DaFaixa = new int[FAIXAS];
+    private final int[] livresDaFaixa = new int[FAIXAS];
+    private final int[] linhaDaFaixa = new int[FAIXAS];
+    private final int[] ativaDaFaixa = new int[FAIXAS];
+    private final int[] acabouDaFaixa = new int[FAIXAS];
+    private int[] subColunas = new int[64];
+    private int[] subDiag1 = new int[64];
+    private int[] subDiag2 = new int[64];
+    private int subarvores;
+
+    public MotorVetorial(int n) {
+        this.escalar = new MotorIterativo(n); // Também valida n
+        this.n = n;
+        this.cheio = n >= N_MAXIMO_VETORIAL ? -1 : (1 << n) - 1;
+        int tamanhoPilha = n <= N_MAXIMO_VETORIAL ? (n + 1) * FAIXAS : 0;
+        this.pilhaColunas = new int[tamanhoPilha];
+        this.pilhaDiag1 = new int[tamanhoPilha];
+        this.pilhaDiag2 = new int[tamanhoPilha];
+        this.pilhaLivres = new int[tamanhoPilha];
+        for (int i = 0; i < FAIXAS; i++) {
+            faixa[i] = i;
+        }
+    }
+
+    // Faixas do vetor nesta máquina (4 com 128 bits, 8 com AVX2 ou mais)
+    public static int getFaixas() {
+        return FAIXAS;
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    @Override
+    public void enumerar(int[] prefixo, int linhas, ReceptorSolucao receptor) {
+        escalar.enumerar(prefixo, linhas, receptor);
+    }
+
+    @Override
+    public long contar(int[] prefixo, int linhas) {
+        if (MetricasBusca.ATIVAS || n > N_MAXIMO_VETORIAL || linhas >= n - 1) {
+            return escalar.contar(prefixo, linhas);
+        }
+        int base = dividir(prefixo, linhas);
+        if (base < 0) {
+            return 0; // Prefixo com ataque
+        }
+        if (subarvores < FAIXAS) {
+            return escalar.contar(prefixo, linhas); // Pouco trabalho: não compensa encher as faixas
+        }
+
+        // Enche as faixas com as primeiras subárvores
+        int proxima = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            proxima = carregar(i, proxima, base);
+            ativaDaFaixa[i] = 1;
+        }
+        long total = 0;
+
+        while (true) {
+            // O estado das faixas fica nos vetores auxiliares de uma iteração para a outra, e cada
+            // passo faz as duas coisas (descer e subir) com blend em vez de if: no JDK 17 um vetor
+            // que atravessa a volta do laço ou a junção de um if vira objeto no heap
+            IntVector posicao = IntVector.fromArray(ESPECIE, faixa, 0);
+            // Constantes como vetores: as operações com um escalar (compare(op, int), and(int),
+            // deslocamentos por constante) passam por um broadcast que o JDK 17 nem sempre torna
+            // intrínseco, e aí cada passo aloca
+            IntVector zero = IntVector.zero(ESPECIE);
+            IntVector um = IntVector.broadcast(ESPECIE, 1);
+            IntVector faixas = IntVector.broadcast(ESPECIE, FAIXAS);
+            IntVector cheios = IntVector.broadcast(ESPECIE, cheio);
+            IntVector ultimaLinha = IntVector.broadcast(ESPECIE, n - 1);
+            IntVector linhaBase = IntVector.broadcast(ESPECIE, base);
+            IntVector colunas = IntVector.fromArray(ESPECIE, colunasDaFaixa, 0);
+            IntVector diag1 = IntVector.fromArray(ESPECIE, diag1DaFaixa, 0);
+            IntVector diag2 = IntVector.fromArray(ESPECIE, diag2DaFaixa, 0);
+            IntVector livres = IntVector.fromArray(ESPECIE, livresDaFaixa, 0);
+            IntVector linha = IntVector.fromArray(ESPECIE, linhaDaFaixa, 0);
+            VectorMask<Integer> ativas = IntVector.fromArray(ESPECIE, ativaDaFaixa, 0).compare(VectorOperators.NE, zero);
+            if (!ativas.anyTrue()) {
+                return total;
+            }
+            VectorMask<Integer> vazias = livres.compare(VectorOperators.EQ, zero);
+            IntVector bit = livres.and(livres.neg()); // Coluna livre mais à esquerda de cada faixa
+            livres = livres.lanewise(VectorOperators.XOR, bit);
+            VectorMask<Integer> comColuna = vazias.not().and(ativas);
+            VectorMask<Integer> folha = comColuna.and(linha.compare(VectorOperators.EQ, ultimaLinha));
+            total += folha.trueCount();
+            VectorMask<Integer> desce = comColuna.and(folha.not());
+            VectorMask<Integer> sobe = vazias.and(ativas);
+            VectorMask<Integer> acabou = sobe.and(linha.compare(VectorOperators.EQ, linhaBase));
+            sobe = sobe.and(acabou.not());
+
+            // Empilha a linha atual de cada faixa e calcula a de baixo para as que descem. A escrita
+            // vale para todas as faixas: nas que não descem ela só grava a posição da própria linha
+            // atual, que nenhuma faixa lê antes de descer de novo. É escalar, como a leitura ao
+            // subir: o scatter e o gather de int do JDK 17 nem sempre são intrínsecos.
+            linha.mul(faixas).add(posicao).intoArray(indices, 0);
+            colunas.intoArray(colunasDaFaixa, 0);
+            diag1.intoArray(diag1DaFaixa, 0);
+            diag2.intoArray(diag2DaFaixa, 0);
+            livres.intoArray(livresDaFaixa, 0);
+            for (int i = 0; i < FAIXAS; i++) {
+                int indice = indices[i];
+                pilhaColunas[indice] = colunasDaFaixa[i];
+                pilhaDiag1[indice] = diag1DaFaixa[i];
+                pilhaDiag2[indice] = diag2DaFaixa[i];
+                pilhaLivres[indice] = livresDaFaixa[i];
+            }
+            IntVector colunasAbaixo = colunas.or(bit);
+            IntVector diag1Ocupada = diag1.or(bit);
+            IntVector diag1Abaixo = diag1Ocupada.add(diag1Ocupada).and(cheios); // << 1, que não é intrínseco no JDK 17
+            IntVector diag2Abaixo = diag2.or(bit).lanewise(VectorOperators.LSHR, um);
+            IntVector livresAbaixo = colunasAbaixo.or(diag1Abaixo).or(diag2Abaixo).not().and(cheios);
+            colunas = colunas.blend(colunasAbaixo, desce);
+            diag1 = diag1.blend(diag1Abaixo, desce);
+            diag2 = diag2.blend(diag2Abaixo, desce);
+            livres = livres.blend(livresAbaixo, desce);
+            linha = linha.blend(linha.add(um), desce);
+
+            // Linha esgotada: as faixas voltam para a linha de cima, guardada na pilha (a leitura
+            // vale para todas as faixas, sempre dentro da pilha, e o blend fica só com as que sobem)
+            linha = linha.blend(linha.sub(um), sobe);
+            linha.mul(faixas).add(posicao).intoArray(indices, 0);
+            for (int i = 0; i < FAIXAS; i++) {
+                int indice = indices[i];
+                colunasDaFaixa[i] = pilhaColunas[indice];
+                diag1DaFaixa[i] = pilhaDiag1[indice];
+                diag2DaFaixa[i] = pilhaDiag2[indice];
+                livresDaFaixa[i] = pilhaLivres[indice];
+            }
+            colunas.blend(IntVector.fromArray(ESPECIE, colunasDaFaixa, 0), sobe).intoArray(colunasDaFaixa, 0);
+            diag1.blend(IntVector.fromArray(ESPECIE, diag1DaFaixa, 0), sobe).intoArray(diag1DaFaixa, 0);
+            diag2.blend(IntVector.fromArray(ESPECIE, diag2DaFaixa, 0), sobe).intoArray(diag2DaFaixa, 0);
+            livres.blend(IntVector.fromArray(ESPECIE, livresDaFaixa, 0), sobe).intoArray(livresDaFaixa, 0);
+            linha.intoArray(linhaDaFaixa, 0);
+
+            if (acabou.anyTrue()) {
+                // Subárvore terminada: a faixa pega a próxima ou fica parada até o fim
+                zero.blend(um, acabou).intoArray(acabouDaFaixa, 0);
+                for (int i = 0; i < FAIXAS; i++) {
+                    if (acabouDaFaixa[i] == 0) {
+                        continue;
+                    }
+                    if (proxima < subarvores) {
+                        proxima = carregar(i, proxima, base);
+                    } else {
+                        ativaDaFaixa[i] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    // Põe a subárvore 'proxima' na faixa i (nos vetores auxiliares) e devolve a seguinte
+    private int carregar(int i, int proxima, int base) {
+        colunasDaFaixa[i] = subColunas[proxima];
+        diag1DaFaixa[i] = subDiag1[proxima];
+        diag2DaFaixa[i] = subDiag2[proxima];
+        livresDaFaixa[i] = ~(subColunas[proxima] | subDiag1[proxima] | subDiag2[proxima]) & cheio;
+        linhaDaFaixa[i] = base;
+        return proxima + 1;
+    }
+
+    // Desce a partir do prefixo, uma linha por vez e em largura, até ter subárvores para todas as
+    // faixas (ou chegar à penúltima linha). Guarda as máscaras de cada uma e devolve a linha em
+    // que elas começam, ou -1 se o prefixo tem ataque.
+    private int dividir(int[] prefixo, int linhas) {
+        int colunas = 0, diag1 = 0, diag2 = 0;
+        for (int linha = 0; linha < linhas; linha++) {
+            int bit = 1 << prefixo[linha];
+            if (((colunas | diag1 | diag2) & bit) != 0) {
+                return -1;
+            }
+            colunas |= bit;
+            diag1 = ((diag1 | bit) << 1) & cheio;
+            diag2 = (diag2 | bit) >>> 1;
+        }
+        subarvores = 0;
+        adicionar(colunas, diag1, diag2);
+        int base = linhas;
+        while (subarvores > 0 && subarvores < FAIXAS * SUBARVORES_POR_FAIXA && base < n - 1) {
+            int[] colunasAcima = Arrays.copyOf(subColunas, subarvores);
+            int[] diag1Acima = Arrays.copyOf(subDiag1, subarvores);
+            int[] diag2Acima = Arrays.copyOf(subDiag2, subarvores);
+            int acima = subarvores;
+            subarvores = 0;
+            for (int i = 0; i < acima; i++) {
+                int livres = ~(colunasAcima[i] | diag1Acima[i] | diag2Acima[i]) & cheio;
+                while (livres != 0) {
+                    int bit = livres & -livres;
+                    livres ^= bit;
+                    adicionar(colunasAcima[i] | bit, ((diag1Acima[i] | bit) << 1) & cheio, (diag2Acima[i] | bit) >>> 1);
+                }
+            }
+            base++;
+        }
+        return base;
+    }
+
+    private void adicionar(int colunas, int diag1, int diag2) {
+        if (subarvores == subColunas.length) {
+            subColunas = Arrays.copyOf(subColunas, subarvores * 2);
+            subDiag1 = Arrays.copyOf(subDiag1, subarvores * 2);
+            subDiag2 = Arrays.copyOf(subDiag2, subarvores * 2);
+        }
+        subColunas[subarvores] = colunas;
+        subDiag1[subarvores] = diag1;
+        subDiag2[subarvores] = diag2;
+        subarvores++;
+    }
+}